@@ -0,0 +1,48 @@
+package study.querydsl.bench;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+
+/**
+ * 벤치마크용 애플리케이션 컨텍스트
+ * <p>
+ * 내장 H2(in-memory)를 사용하고, 측정에 영향을 주는 SQL 로그와 local 프로파일의 초기 데이터는 끈다.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(String database, String... args) {
+        String[] defaults = {
+                "--spring.profiles.active=bench",
+                "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--spring.main.banner-mode=off"
+        };
+        String[] merged = new String[defaults.length + args.length];
+        System.arraycopy(defaults, 0, merged, 0, defaults.length);
+        System.arraycopy(args, 0, merged, defaults.length, args.length);
+
+        return new SpringApplicationBuilder(QuerydslApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(merged);
+    }
+
+    /**
+     * 팀 teams 개와 회원 rows 명을 SQL 한 번으로 넣는다. 회원 나이는 0~99, 팀은 순서대로 배정된다.
+     */
+    public static void seed(JdbcTemplate jdbcTemplate, int teams, int rows) {
+        jdbcTemplate.update("insert into team (id, name) " +
+                "select x, concat('team', x) from system_range(1, " + teams + ")");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x, concat('member', x), mod(x, 100), mod(x - 1, " + teams + ") + 1 " +
+                "from system_range(1, " + rows + ")");
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchPageComplex 깊은 offset 페이지: 조인한 행을 건너뛰는 offset vs id 먼저 고르는 deferred join
+ * count 는 MemberCountCache 에 남으므로 측정값은 content 조회 비용이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DeepPageBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    @Param({"1000", "100000", "900000"})
+    int offset;
+
+    /** offset: 기존 방식, deferred: late row lookup */
+    @Param({"offset", "deferred"})
+    String strategy;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberSearchCondition condition;
+    PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long threshold = "deferred".equals(strategy) ? 0 : Long.MAX_VALUE;
+        context = BenchmarkContext.start("deeppage" + rows + strategy,
+                "--member.deferred-join.offset-threshold=" + threshold);
+        BenchmarkContext.seed(context.getBean(JdbcTemplate.class), 10, rows);
+        memberRepository = context.getBean(MemberRepository.class);
+
+        condition = new MemberSearchCondition();
+        pageRequest = PageRequest.of(offset / 20, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+}
@@ -0,0 +1,78 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검색 조건 conditions 개: 조건마다 search 를 호출 vs searchBatch 한 번
+ * 조건은 팀마다 하나씩(90세 이상)이라 결과가 서로 겹치지 않는다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberBatchSearchBenchmark {
+
+    @Param({"20"})
+    int conditions;
+
+    @Param({"200000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    List<MemberSearchCondition> searchConditions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("batchsearch" + conditions + "_" + rows);
+        BenchmarkContext.seed(context.getBean(JdbcTemplate.class), conditions, rows);
+        memberRepository = context.getBean(MemberRepository.class);
+        searchConditions = new ArrayList<>();
+        for (int i = 1; i <= conditions; i++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setTeamName("team" + i);
+            condition.setAgeGoe(90);
+            searchConditions.add(condition);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int sequential() {
+        int size = 0;
+        for (MemberSearchCondition condition : searchConditions) {
+            size += memberRepository.search(condition).size();
+        }
+        return size;
+    }
+
+    @Benchmark
+    public int batch() {
+        int size = 0;
+        for (List<MemberTeamDto> result : memberRepository.searchBatch(searchConditions)) {
+            size += result.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.repository.MemberBulkLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberBulkLoader 로 회원 1M 명을 저장하는 처리량
+ * <p>
+ * rows 보조 카운터가 초당 저장한 행 수(rows/sec)이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+public class MemberBulkLoadBenchmark {
+
+    @Param({"1000000"})
+    int members;
+
+    @Param({"1000"})
+    int batchSize;
+
+    ConfigurableApplicationContext context;
+    MemberBulkLoader loader;
+    JdbcTemplate jdbcTemplate;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RowCounter {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("bulkload",
+                "--member.bulk-load.chunk-size=" + batchSize,
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+        loader = context.getBean(MemberBulkLoader.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void clean() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MemberBulkLoader.Result load(RowCounter counter) {
+        MemberBulkLoader.Result result = loader.load(100, members);
+        counter.rows += result.getTeams() + result.getMembers();
+        return result;
+    }
+}
@@ -0,0 +1,72 @@
+package study.querydsl.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.controller.MemberJsonStreamer;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /v1/members JSON 응답: DTO 목록 직렬화 vs 커서에서 JsonGenerator 로 바로 쓰기
+ * gc 프로파일러의 gc.alloc.rate.norm 을 rows 로 나누면 행당 할당량이다.
+ * <p>
+ * 아직 측정한 값이 없다. 스트리밍이 행당 할당을 줄이는지는 아래로 실행해서 dto, stream 의 값을 비교하기 전까지 확인되지 않은 것이다.
+ * <pre>
+ * ./gradlew jmhJar
+ * java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar MemberJsonStreamBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberJsonStreamBenchmark {
+
+    @Param({"100000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberJpaRepository memberJpaRepository;
+    MemberJsonStreamer streamer;
+    ObjectMapper objectMapper;
+    MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("jsonstream" + rows);
+        BenchmarkContext.seed(context.getBean(JdbcTemplate.class), 10, rows);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        streamer = context.getBean(MemberJsonStreamer.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        condition = new MemberSearchCondition();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void dto() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), memberJpaRepository.search(condition));
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        return streamer.write(condition, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,80 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.memory.MemberColumnStore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberRepository.search: Querydsl(JPA) vs 메모리 컬럼 스냅샷
+ * JPA 경로는 쓰기 트랜잭션 안에서 호출해 스냅샷을 거치지 않게 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberMemorySearchBenchmark {
+
+    @Param({"1000000"})
+    int rows;
+
+    /** team: 팀 + 나이 범위(약 1.1%), username: 이름 한 건 */
+    @Param({"team", "username"})
+    String filter;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    MemberColumnStore store;
+    TransactionTemplate transactionTemplate;
+    MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("memorysearch" + rows);
+        BenchmarkContext.seed(context.getBean(JdbcTemplate.class), 10, rows);
+        memberRepository = context.getBean(MemberRepository.class);
+        store = context.getBean(MemberColumnStore.class);
+        store.rebuild();
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        condition = new MemberSearchCondition();
+        if ("team".equals(filter)) {
+            condition.setTeamName("team3");
+            condition.setAgeGoe(20);
+            condition.setAgeLoe(30);
+        } else {
+            condition.setUsername("member" + rows / 2);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> querydsl() {
+        return transactionTemplate.execute(status -> memberRepository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> columnStore() {
+        return store.search(condition).orElseThrow();
+    }
+}
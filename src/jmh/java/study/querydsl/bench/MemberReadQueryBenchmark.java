@@ -0,0 +1,63 @@
+package study.querydsl.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberTestRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 쓰기 트랜잭션 안에서 회원 엔티티를 대량으로 읽고 커밋하기까지: selectFrom vs readSelectFrom
+ * 일반 조회는 엔티티마다 dirty checking 스냅샷을 만들고 커밋할 때 모두 비교한다.
+ * gc 프로파일러의 gc.alloc.rate.norm 이 한 번 읽을 때 할당한 힙이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberReadQueryBenchmark {
+
+    @Param({"200000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    MemberTestRepository memberTestRepository;
+    TransactionTemplate transactionTemplate;
+    MemberSearchCondition condition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("readquery" + rows);
+        BenchmarkContext.seed(context.getBean(JdbcTemplate.class), 10, rows);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        condition = new MemberSearchCondition();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int selectFrom() {
+        return transactionTemplate.execute(status -> memberTestRepository.basicSelectFrom().size());
+    }
+
+    @Benchmark
+    public int readSelectFrom() {
+        return transactionTemplate.execute(status -> memberTestRepository.readSelectFrom(condition).size());
+    }
+}
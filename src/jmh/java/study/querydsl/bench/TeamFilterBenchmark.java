@@ -0,0 +1,75 @@
+package study.querydsl.bench;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.repository.cache.TeamIdCache;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.TimeUnit;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 이름으로 거른 count: team 조인 + team.name 비교(변경 전) vs TeamIdCache + member.team.id 비교(변경 후)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TeamFilterBenchmark {
+
+    @Param({"100000", "1000000"})
+    int rows;
+
+    ConfigurableApplicationContext context;
+    EntityManager em;
+    JPAQueryFactory queryFactory;
+    TeamIdCache teamIdCache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("teamfilter" + rows);
+        BenchmarkContext.seed(context.getBean(JdbcTemplate.class), 10, rows);
+        em = context.getBean(EntityManagerFactory.class).createEntityManager();
+        queryFactory = new JPAQueryFactory(em);
+        teamIdCache = context.getBean(TeamIdCache.class);
+        teamIdCache.refresh();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        em.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Long countJoinTeamName() {
+        return queryFactory
+                .select(member.count())
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("team3"))
+                .fetchOne();
+    }
+
+    @Benchmark
+    public Long countCachedTeamId() {
+        return queryFactory
+                .select(member.count())
+                .from(member)
+                .where(member.team.id.in(teamIdCache.findIds("team3")))
+                .fetchOne();
+    }
+}
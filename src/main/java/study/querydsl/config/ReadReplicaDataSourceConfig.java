@@ -0,0 +1,97 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * member.datasource.replicas.enabled=true 이면 @Transactional(readOnly = true) 구간의 쿼리를 replica 로 보낸다.
+ * <p>
+ * 커넥션 풀 설정(spring.datasource.hikari.*)은 primary 와 replica 에 똑같이 적용한다.
+ * 풀 설정은 DataSource 가 아닌 {@link HikariConfig} 빈으로 받는다 - primary 를 DataSource 빈으로 따로 등록하면
+ * p6spy 가 라우팅 DataSource 와 primary 를 모두 감싸서 SQL 이 두 번 기록된다.
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+@ConditionalOnProperty(prefix = "member.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig hikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaryProperties,
+                                 ReplicaDataSourceProperties replicaProperties,
+                                 HikariConfig hikariConfig) {
+        HikariConfig primaryConfig = copyOf(hikariConfig, null);
+        // spring.datasource.hikari.jdbc-url 처럼 풀 설정에 직접 준 값이 spring.datasource.* 보다 우선한다.
+        if (primaryConfig.getJdbcUrl() == null) {
+            primaryConfig.setJdbcUrl(primaryProperties.determineUrl());
+        }
+        if (primaryConfig.getUsername() == null) {
+            primaryConfig.setUsername(primaryProperties.determineUsername());
+        }
+        if (primaryConfig.getPassword() == null) {
+            primaryConfig.setPassword(primaryProperties.determinePassword());
+        }
+        if (primaryConfig.getDriverClassName() == null) {
+            primaryConfig.setDriverClassName(primaryProperties.determineDriverClassName());
+        }
+        DataSource primary = new HikariDataSource(primaryConfig);
+
+        List<DataSource> replicas = new ArrayList<>();
+        List<String> urls = replicaProperties.getUrls();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig replicaConfig = copyOf(primaryConfig, "replica" + (i + 1));
+            replicaConfig.setJdbcUrl(urls.get(i));
+            if (replicaProperties.getUsername() != null) {
+                replicaConfig.setUsername(replicaProperties.getUsername());
+            }
+            if (replicaProperties.getPassword() != null) {
+                replicaConfig.setPassword(replicaProperties.getPassword());
+            }
+            replicas.add(new HikariDataSource(replicaConfig));
+        }
+
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replicas, replicaProperties.getStrategy());
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (routingDataSource != null) {
+            routingDataSource.close();
+        }
+    }
+
+    /**
+     * @param suffix 풀 이름이 지정되어 있으면 뒤에 붙여서 풀마다 다른 이름을 쓴다.
+     */
+    private static HikariConfig copyOf(HikariConfig source, String suffix) {
+        HikariConfig copy = new HikariConfig();
+        source.copyStateTo(copy);
+        if (suffix != null && copy.getPoolName() != null) {
+            copy.setPoolName(copy.getPoolName() + "-" + suffix);
+        }
+        return copy;
+    }
+}
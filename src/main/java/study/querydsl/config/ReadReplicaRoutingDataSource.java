@@ -0,0 +1,142 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 읽기 전용 트랜잭션의 커넥션을 replica 로 보내는 DataSource
+ * <p>
+ * 커넥션을 얻는 시점의 {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()} 로 판단하므로
+ * 트랜잭션 시작 이후에 실제 커넥션을 얻도록 {@code LazyConnectionDataSourceProxy} 로 감싸서 사용한다.
+ * 선택한 replica 에서 커넥션을 얻지 못하면 나머지 replica 를 차례로 시도하고, 모두 실패하면 primary 를 사용한다.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Strategy strategy;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Strategy strategy) {
+        Assert.notNull(primary, "Primary DataSource must not be null!");
+        Assert.notNull(strategy, "Strategy must not be null!");
+        this.primary = primary;
+        replicas.forEach(replica -> this.replicas.add(new Replica(replica)));
+        this.strategy = strategy;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!shouldUseReplica()) {
+            return primary.getConnection();
+        }
+        int first = select();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((first + i) % replicas.size());
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                logger.warn("Replica connection failed, trying next: " + e.getMessage());
+            }
+        }
+        logger.warn("No replica available, falling back to primary");
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!shouldUseReplica()) {
+            return primary.getConnection(username, password);
+        }
+        return getConnection();
+    }
+
+    /**
+     * replica 별로 현재 빌려간 커넥션 수
+     */
+    public List<Integer> getActiveConnections() {
+        List<Integer> result = new ArrayList<>();
+        replicas.forEach(replica -> result.add(replica.active.get()));
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            closeIfPossible(replica.dataSource);
+        }
+        closeIfPossible(primary);
+    }
+
+    private void closeIfPossible(DataSource dataSource) throws IOException {
+        if (dataSource instanceof Closeable) {
+            ((Closeable) dataSource).close();
+        }
+    }
+
+    private boolean shouldUseReplica() {
+        return !replicas.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private int select() {
+        if (strategy == Strategy.ROUND_ROBIN) {
+            return Math.floorMod(next.getAndIncrement(), replicas.size());
+        }
+        int selected = 0;
+        for (int i = 1; i < replicas.size(); i++) {
+            if (replicas.get(i).active.get() < replicas.get(selected).active.get()) {
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    private static class Replica {
+
+        private final DataSource dataSource;
+        private final AtomicInteger active = new AtomicInteger();
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        Connection getConnection() throws SQLException {
+            Connection connection = dataSource.getConnection();
+            active.incrementAndGet();
+            return countingClose(connection);
+        }
+
+        private Connection countingClose(Connection target) {
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                            active.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter @Setter
+@ConfigurationProperties(prefix = "member.datasource.replicas")
+public class ReplicaDataSourceProperties {
+
+    private boolean enabled;
+    private ReadReplicaRoutingDataSource.Strategy strategy = ReadReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * 지정하지 않으면 primary(spring.datasource) 계정을 사용한다.
+     */
+    private String username;
+    private String password;
+}
@@ -0,0 +1,24 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.repository.support.statement.StatementRecordingInspector;
+
+/**
+ * member.statements.capture.enabled=true 이면 Hibernate 가 준비하는 SQL 을 {@link StatementRecordingInspector} 로 기록한다.
+ * <p>
+ * 리포지토리 호출마다 SQL 을 모으는 {@link study.querydsl.repository.support.statement.RepositoryStatementAspect} 도
+ * 같은 설정으로 켜진다. SQL 마다 정규식으로 정리하는 비용이 있으므로 local, dev, test 에서만 켠다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "member.statements.capture", name = "enabled", havingValue = "true")
+public class StatementCaptureConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementRecordingInspector());
+    }
+}
@@ -1,15 +1,25 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.CountMode;
 import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberKeysetSort;
+import study.querydsl.repository.MemberPageSort;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.KeysetPage;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -18,19 +28,84 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberNdjsonExporter memberNdjsonExporter;
+    private final MemberJsonStreamer memberJsonStreamer;
+
+    @Value("${member.batch-search.max-conditions:100}")
+    private int batchMaxConditions;
+
+    @Value("${spring.data.web.pageable.max-page-size:2000}")
+    private int maxPageSize;
 
     @GetMapping("/v1/members")
     public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.search(condition);
     }
 
+    /**
+     * 여러 검색 조건을 한 번에 처리한다. 응답의 i 번째 목록이 요청의 i 번째 조건의 결과다.
+     */
+    @PostMapping("/v1/members/batch")
+    public List<List<MemberTeamDto>> searchMemberBatchV1(@RequestBody List<MemberSearchCondition> conditions) {
+        if (conditions.size() > batchMaxConditions) {
+            throw new IllegalArgumentException("Conditions must not exceed " + batchMaxConditions + "!");
+        }
+        if (conditions.contains(null)) {
+            throw new IllegalArgumentException("Conditions must not contain null!");
+        }
+        return memberRepository.searchBatch(conditions);
+    }
+
+    /**
+     * /v1/members 와 같은 JSON 을 DTO 를 만들지 않고 커서에서 바로 쓴다. 결과가 큰 조회용
+     */
+    @GetMapping(value = "/v1/members/stream", produces = "application/json")
+    public void streamMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        memberJsonStreamer.write(condition, response.getOutputStream());
+    }
+
+    @GetMapping(value = "/v1/members/export", produces = "application/x-ndjson")
+    public void exportMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        memberNdjsonExporter.export(condition, response.getOutputStream());
+    }
+
+    /**
+     * count=approximate 이면 total 을 추정한다. 응답의 approximate, totalErrorBound 로 추정 여부와 오차를 알 수 있다.
+     * 알 수 없는 count 모드나 정렬 키는 리포지토리를 호출하기 전에 거부한다(400).
+     */
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageSimple(condition, pageable);
+    public EstimatedPage<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable,
+                                                       @RequestParam(defaultValue = "exact") String count) {
+        CountMode countMode = CountMode.from(count);
+        MemberPageSort.supported(pageable.getSort());
+        return memberRepository.searchPageSimple(condition, pageable, countMode);
     }
 
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public EstimatedPage<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                                       @RequestParam(defaultValue = "exact") String count) {
+        CountMode countMode = CountMode.from(count);
+        MemberPageSort.supported(pageable.getSort());
+        return memberRepository.searchPageComplex(condition, pageable, countMode);
+    }
+
+    /**
+     * size 는 Pageable 과 같이 max-page-size 로 줄인다. 1 보다 작은 size, 알 수 없는 정렬 키, 잘못된 커서는 400
+     */
+    @GetMapping("/v4/members")
+    public KeysetPage<MemberTeamDto> searchMemberV4(MemberSearchCondition condition,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "id") String sort,
+                                                    @RequestParam(defaultValue = "20") int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one!");
+        }
+        MemberKeysetSort keysetSort = MemberKeysetSort.from(sort);
+        keysetSort.checkCursor(cursor);
+        return memberRepository.searchKeyset(condition, keysetSort, cursor, Math.min(size, maxPageSize));
     }
 }
@@ -0,0 +1,23 @@
+package study.querydsl.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 회원 API 의 요청 값(정렬 키, count 모드 등) 검증 실패를 400 으로 응답한다.
+ * <p>
+ * 리포지토리 안에서 던진 IllegalArgumentException 은 Spring 이 InvalidDataAccessApiUsageException 으로 바꾸므로
+ * 컨트롤러는 요청 값을 리포지토리를 호출하기 전에 검증한다.
+ */
+@RestControllerAdvice(assignableTypes = MemberController.class)
+public class MemberControllerAdvice {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public void badRequest(IllegalArgumentException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+}
@@ -0,0 +1,85 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.ScrollableResults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 회원 검색 결과를 JSON 배열로 바로 쓴다.
+ * <p>
+ * 커서에서 읽은 컬럼 값을 {@link MemberTeamDto} 를 만들지 않고 JsonGenerator 에 필드 단위로 쓴다.
+ * 엔티티/DTO 생성과 Jackson 의 리플렉션 직렬화를 건너뛴다.
+ * <p>
+ * 필드 이름과 순서, null 출력을 직접 정하므로 List&lt;MemberTeamDto&gt; 를 직렬화한 JSON 과 같은 것은 기본 Jackson 설정일 때뿐이다.
+ * ObjectMapper 의 생성기 설정(INDENT_OUTPUT 등)은 따르지만 PropertyNamingStrategy, 포함 규칙(NON_NULL 등),
+ * MemberTeamDto 에 붙인 Jackson 애너테이션은 적용되지 않는다. spring.jackson.* 설정을 바꾸면 MemberJsonStreamerTest 가 차이를 잡는다.
+ */
+@Component
+public class MemberJsonStreamer {
+
+    private static final SerializedString MEMBER_ID = new SerializedString("memberId");
+    private static final SerializedString USERNAME = new SerializedString("username");
+    private static final SerializedString AGE = new SerializedString("age");
+    private static final SerializedString TEAM_ID = new SerializedString("teamId");
+    private static final SerializedString TEAM_NAME = new SerializedString("teamName");
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public MemberJsonStreamer(MemberJpaRepository memberJpaRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${member.export.fetch-size:500}") int fetchSize) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public long write(MemberSearchCondition condition, OutputStream out) throws IOException {
+        long rows = 0;
+        ScrollableResults results = memberJpaRepository.searchRows(condition, fetchSize);
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            while (results.next()) {
+                generator.writeStartObject();
+                writeNumber(generator, MEMBER_ID, results.getLong(0));
+                generator.writeFieldName(USERNAME);
+                generator.writeString(results.getString(1));
+                generator.writeFieldName(AGE);
+                generator.writeNumber(results.getInteger(2));
+                writeNumber(generator, TEAM_ID, results.getLong(3));
+                generator.writeFieldName(TEAM_NAME);
+                generator.writeString(results.getString(4));
+                generator.writeEndObject();
+                if (++rows % fetchSize == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        } finally {
+            results.close();
+        }
+        return rows;
+    }
+
+    private void writeNumber(JsonGenerator generator, SerializedString name, Long value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            generator.writeNumber(value);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 회원 검색 결과를 NDJSON(한 줄에 JSON 하나)으로 내보낸다.
+ * <p>
+ * 결과를 List 로 모으지 않고 커서에서 읽은 행을 바로 출력 스트림에 쓰며,
+ * fetch size 단위로 출력을 flush 해서 결과 크기와 관계없이 힙 사용량을 일정하게 유지한다.
+ * DTO 로 조회하므로 영속성 컨텍스트에 쌓이는 엔티티가 없다. 호출한 쪽의 엔티티를 detach 하지 않도록 em.clear() 는 하지 않는다.
+ */
+@Component
+public class MemberNdjsonExporter {
+
+    private final MemberJpaRepository memberJpaRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+
+    public MemberNdjsonExporter(MemberJpaRepository memberJpaRepository,
+                                ObjectMapper objectMapper,
+                                @Value("${member.export.fetch-size:500}") int fetchSize) {
+        this.memberJpaRepository = memberJpaRepository;
+        this.objectMapper = objectMapper;
+        this.writer = objectMapper.writerFor(MemberTeamDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.fetchSize = fetchSize;
+    }
+
+    @Transactional(readOnly = true)
+    public long export(MemberSearchCondition condition, OutputStream out) throws IOException {
+        long rows = 0;
+        try (Stream<MemberTeamDto> stream = memberJpaRepository.searchStream(condition, fetchSize);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Iterator<MemberTeamDto> iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++rows % fetchSize == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        return rows;
+    }
+}
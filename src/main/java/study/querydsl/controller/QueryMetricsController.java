@@ -0,0 +1,98 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import study.querydsl.repository.cache.CacheStats;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.cache.MemberSearchCache;
+import study.querydsl.repository.support.advisor.IndexAdvice;
+import study.querydsl.repository.support.advisor.IndexAdvisor;
+import study.querydsl.repository.support.metrics.QueryMetrics;
+import study.querydsl.repository.support.metrics.QueryMetricsSnapshot;
+import study.querydsl.repository.support.slowquery.SlowQueryLog;
+import study.querydsl.repository.support.slowquery.SlowQuerySnapshot;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 리포지토리 메트릭, 느린 SQL, 인덱스 판정, 캐시 적중률 조회 - 로컬(loopback) 요청만 받는다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class QueryMetricsController {
+
+    private final QueryMetrics queryMetrics;
+    private final SlowQueryLog slowQueryLog;
+    private final ObjectProvider<IndexAdvisor> indexAdvisor;
+    private final MemberSearchCache memberSearchCache;
+    private final MemberCountCache memberCountCache;
+
+    @GetMapping("/metrics/queries")
+    public List<QueryMetricsSnapshot> queries(HttpServletRequest request) {
+        checkLocal(request);
+        return queryMetrics.snapshot();
+    }
+
+    @DeleteMapping("/metrics/queries")
+    public void reset(HttpServletRequest request) {
+        checkLocal(request);
+        queryMetrics.reset();
+    }
+
+    @GetMapping("/metrics/slow-queries")
+    public List<SlowQuerySnapshot> slowQueries(HttpServletRequest request,
+                                               @RequestParam(defaultValue = "10") int top) {
+        checkLocal(request);
+        return slowQueryLog.top(top);
+    }
+
+    @DeleteMapping("/metrics/slow-queries")
+    public void resetSlowQueries(HttpServletRequest request) {
+        checkLocal(request);
+        slowQueryLog.reset();
+    }
+
+    /**
+     * local, dev 프로파일에서만 있다.
+     */
+    @GetMapping("/metrics/index-advice")
+    public List<IndexAdvice> indexAdvice(HttpServletRequest request) {
+        checkLocal(request);
+        IndexAdvisor advisor = indexAdvisor.getIfAvailable();
+        if (advisor == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        return advisor.report();
+    }
+
+    @GetMapping("/metrics/caches")
+    public Map<String, CacheStats> caches(HttpServletRequest request) {
+        checkLocal(request);
+        Map<String, CacheStats> caches = new LinkedHashMap<>();
+        caches.put("member-search", memberSearchCache.stats());
+        caches.put("member-count", memberCountCache.stats());
+        return caches;
+    }
+
+    static void checkLocal(HttpServletRequest request) {
+        try {
+            if (InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) {
+                return;
+            }
+        } catch (UnknownHostException e) {
+            // 주소를 알 수 없으면 거절한다.
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+}
@@ -2,6 +2,11 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
@@ -10,4 +15,37 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+
+    /**
+     * 같은 검색 결과를 내는 조건이 같은 값이 되도록 정규화한 복사본
+     * 검색 조건으로 쓰이지 않는 빈 문자열(hasText 가 false)은 null 로 바꾼다.
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(hasText(username) ? username : null);
+        normalized.setTeamName(hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        return normalized;
+    }
+
+    /**
+     * 검색에 쓰이는 조건 필드 이름 목록 - 메트릭 태그 등에 쓴다.
+     */
+    public List<String> presentFields() {
+        List<String> fields = new ArrayList<>();
+        if (hasText(username)) {
+            fields.add("username");
+        }
+        if (hasText(teamName)) {
+            fields.add("teamName");
+        }
+        if (ageGoe != null) {
+            fields.add("ageGoe");
+        }
+        if (ageLoe != null) {
+            fields.add("ageLoe");
+        }
+        return fields;
+    }
 }
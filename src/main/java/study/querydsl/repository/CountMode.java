@@ -0,0 +1,34 @@
+package study.querydsl.repository;
+
+import java.util.Arrays;
+
+/**
+ * 페이지 total 계산 방식
+ */
+public enum CountMode {
+
+    /** count 쿼리로 정확히 센다. */
+    EXACT("exact"),
+    /** {@link MemberCountEstimator} 로 추정한다. "약 N 건" 처럼 보여줄 때 쓴다. */
+    APPROXIMATE("approximate");
+
+    private final String key;
+
+    CountMode(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static CountMode from(String key) {
+        if (key == null || key.isEmpty()) {
+            return EXACT;
+        }
+        return Arrays.stream(values())
+                .filter(mode -> mode.key.equalsIgnoreCase(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported count mode: " + key));
+    }
+}
@@ -0,0 +1,108 @@
+package study.querydsl.repository;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 대량의 Team/Member 를 chunk 단위로 저장한다.
+ * <p>
+ * chunk 마다 트랜잭션을 커밋하고 flush/clear 해서 영속성 컨텍스트가 커지지 않게 하며,
+ * hibernate.jdbc.batch_size 와 pooled-lo 시퀀스 할당을 이용해 insert 와 id 조회를 묶어서 보낸다.
+ */
+@Component
+public class MemberBulkLoader {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public MemberBulkLoader(EntityManager em,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${member.bulk-load.chunk-size:1000}") int chunkSize) {
+        Assert.isTrue(chunkSize > 0, "Chunk size must be positive!");
+        this.em = em;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 팀 teamCount 개와 회원 memberCount 명을 저장한다.
+     * 회원 i 는 이름 "member" + i, 나이 i % 100 이며 팀에 순서대로 배정된다.
+     */
+    public Result load(int teamCount, int memberCount) {
+        Assert.isTrue(teamCount > 0, "Team count must be positive!");
+        long start = System.nanoTime();
+
+        List<Long> teamIds = new ArrayList<>(teamCount);
+        for (int from = 0; from < teamCount; from += chunkSize) {
+            teamIds.addAll(saveTeams(from, Math.min(from + chunkSize, teamCount)));
+        }
+        for (int from = 0; from < memberCount; from += chunkSize) {
+            saveMembers(from, Math.min(from + chunkSize, memberCount), teamIds);
+        }
+
+        return new Result(teamCount, memberCount, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private List<Long> saveTeams(int from, int to) {
+        return transactionTemplate.execute(status -> {
+            List<Team> teams = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Team team = new Team("team" + i);
+                em.persist(team);
+                teams.add(team);
+            }
+            em.flush();
+            em.clear();
+
+            List<Long> ids = new ArrayList<>(teams.size());
+            teams.forEach(team -> ids.add(team.getId()));
+            return ids;
+        });
+    }
+
+    private void saveMembers(int from, int to, List<Long> teamIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = from; i < to; i++) {
+                // 연관관계 편의 메소드(changeTeam)는 팀의 members 컬렉션을 초기화하므로 FK 만 설정한다.
+                Member member = new Member("member" + i, i % 100);
+                member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+                em.persist(member);
+            }
+            em.flush();
+            em.clear();
+        });
+    }
+
+    @Getter
+    @ToString
+    public static class Result {
+
+        private final int teams;
+        private final int members;
+        private final Duration elapsed;
+
+        public Result(int teams, int members, Duration elapsed) {
+            this.teams = teams;
+            this.members = members;
+            this.elapsed = elapsed;
+        }
+
+        public double getRowsPerSecond() {
+            long nanos = Math.max(elapsed.toNanos(), 1);
+            return (teams + members) * 1_000_000_000.0 / nanos;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.impl.JPADeleteClause;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeEventListener;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * chunk 단위 벌크 update/delete
+ * <p>
+ * 조건에 맞는 member.id 를 오름차순으로 chunkSize 개씩 잘라 (조건 and id 범위) 로 update/delete 하고 chunk 마다 커밋한다.
+ * 한 번에 전체를 처리하는 것보다 잠금을 짧게 잡는다.
+ * chunk 가 커밋될 때마다 em.clear() 대신 그 chunk 의 Member 만 현재 영속성 컨텍스트와 2차 캐시에서 제거한다.
+ * 변경 이벤트({@link EntityChange.Type#BULK})는 마지막 chunk 가 끝난 뒤 한 번만 보낸다.
+ * <p>
+ * chunk 는 별도 트랜잭션(REQUIRES_NEW)에서 실행된다. 쓰는 트랜잭션 안에서 호출하면 그 트랜잭션이 잡은 행 잠금을 chunk 가 기다리고,
+ * 영속성 컨텍스트에서 제거하는 Member 의 flush 되지 않은 변경이 사라지므로 쓰는 트랜잭션 안에서는 호출할 수 없다.
+ * 트랜잭션 밖이나 읽기 전용 트랜잭션 안에서 호출한다.
+ * 벌크 JPQL 은 조인할 수 없으므로 조건은 member 의 필드만 사용해야 한다.
+ */
+@Component
+public class MemberBulkOperations {
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final EntityChangeEventListener entityChangeEventListener;
+    private final int chunkSize;
+
+    public MemberBulkOperations(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                EntityChangeEventListener entityChangeEventListener,
+                                @Value("${member.bulk-update.chunk-size:1000}") int chunkSize) {
+        Assert.isTrue(chunkSize > 0, "Chunk size must be positive!");
+        this.em = em;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.entityChangeEventListener = entityChangeEventListener;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * <pre>
+     * bulkOperations.update(member.age.lt(28), update -> update.set(member.username, "비회원"));
+     * bulkOperations.update(null, update -> update.set(member.age, member.age.add(1)));
+     * </pre>
+     *
+     * @param where null 이면 전체
+     * @throws IllegalStateException 쓰는 트랜잭션 안에서 호출한 경우
+     */
+    public Result update(Predicate where, Consumer<JPAUpdateClause> set) {
+        return execute(where, false, ids -> {
+            JPAUpdateClause update = queryFactory.update(member);
+            set.accept(update);
+            return update.where(where, inRange(ids)).execute();
+        });
+    }
+
+    /**
+     * @param where null 이면 전체
+     * @throws IllegalStateException 쓰는 트랜잭션 안에서 호출한 경우
+     */
+    public Result delete(Predicate where) {
+        return execute(where, true, ids -> {
+            JPADeleteClause delete = queryFactory.delete(member);
+            return delete.where(where, inRange(ids)).execute();
+        });
+    }
+
+    private Result execute(Predicate where, boolean delete, ChunkAction action) {
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive()
+                        || TransactionSynchronizationManager.isCurrentTransactionReadOnly(),
+                "Bulk operations must not run inside a read-write transaction!");
+        long start = System.nanoTime();
+        int chunks = 0;
+        long rows = 0;
+        Long lastId = null;
+        try {
+            while (true) {
+                Long after = lastId;
+                ChunkResult chunk = chunkTransaction.execute(status -> {
+                    List<Long> ids = queryFactory
+                            .select(member.id)
+                            .from(member)
+                            .where(where, after == null ? null : member.id.gt(after))
+                            .orderBy(member.id.asc())
+                            .limit(chunkSize)
+                            .fetch();
+                    if (ids.isEmpty()) {
+                        return null;
+                    }
+                    return new ChunkResult(ids, action.execute(ids));
+                });
+                if (chunk == null) {
+                    break;
+                }
+                chunks++;
+                rows += chunk.rows;
+                lastId = chunk.ids.get(chunk.ids.size() - 1);
+                // id 를 모아 두지 않고 커밋된 chunk 마다 바로 지운다.
+                evict(chunk.ids, delete);
+            }
+        } finally {
+            if (chunks > 0) {
+                // 커밋된 chunk 들을 한 번만 알린다. chunk 마다 알리면 메모리 스냅샷을 chunk 수만큼 다시 읽는다.
+                // 호출한 쪽의 읽기 전용 트랜잭션이 롤백되어도 알리도록 별도 트랜잭션에서 알린다.
+                chunkTransaction.executeWithoutResult(status -> entityChangeEventListener.publish(
+                        new EntityChange(EntityChange.Type.BULK, Member.class, null, null)));
+            }
+        }
+
+        return new Result(chunks, rows, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static Predicate inRange(List<Long> ids) {
+        return member.id.between(ids.get(0), ids.get(ids.size() - 1));
+    }
+
+    /**
+     * 영향을 받은 Member 를 2차 캐시에서 지우고, 현재 영속성 컨텍스트에 올라와 있으면 detach 한다.
+     * 삭제된 경우 이미 로딩된 Team.members 컬렉션에서도 뺀다.
+     */
+    private void evict(List<Long> ids, boolean delete) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Cache cache = em.getEntityManagerFactory().getCache();
+        for (Long id : ids) {
+            cache.evict(Member.class, id);
+        }
+        // 트랜잭션 밖이면 정리할 영속성 컨텍스트가 없다.
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+        for (Long id : ids) {
+            EntityKey key = session.generateEntityKey(id, persister);
+            Object entity = session.getPersistenceContext().getEntity(key);
+            if (entity == null) {
+                continue;
+            }
+            Member evicted = (Member) entity;
+            Team team = evicted.getTeam();
+            if (delete && team != null && Hibernate.isInitialized(team) && Hibernate.isInitialized(team.getMembers())) {
+                team.getMembers().remove(evicted);
+            }
+            em.detach(evicted);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkAction {
+        long execute(List<Long> ids);
+    }
+
+    private static class ChunkResult {
+
+        private final List<Long> ids;
+        private final long rows;
+
+        private ChunkResult(List<Long> ids, long rows) {
+            this.ids = ids;
+            this.rows = rows;
+        }
+    }
+
+    @Getter
+    @ToString
+    public static class Result {
+
+        private final int chunks;
+        private final long rows;
+        private final Duration elapsed;
+
+        public Result(int chunks, long rows, Duration elapsed) {
+            this.chunks = chunks;
+            this.rows = rows;
+            this.elapsed = elapsed;
+        }
+    }
+}
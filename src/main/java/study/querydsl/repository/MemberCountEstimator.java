@@ -0,0 +1,162 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.memory.MemberBitmapIndex;
+import study.querydsl.repository.support.CountEstimate;
+
+import javax.persistence.EntityManager;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 검색 조건에 맞는 회원 수를 싸게 추정한다.
+ * <ol>
+ * <li>username 조건이 없고 {@link MemberBitmapIndex} 가 준비되어 있으면 비트맵으로 센다 - 커밋된 상태 기준의 정확한 값</li>
+ * <li>username 조건이 있으면 username 인덱스로 범위가 좁으므로 count 쿼리로 정확히 센다.</li>
+ * <li>그 밖에는 member.id 범위를 window 수만큼의 층으로 나누고 층마다 window 하나를 무작위로 골라 조건에 맞는 비율을 재고
+ * 전체 회원 수를 곱한다. window 는 서로 겹치지 않으므로 같은 행을 두 번 세지 않는다.</li>
+ * </ol>
+ * 표본은 행 단위가 아니라 window 단위로 뽑는 집락 표본이므로 오차 한계는 window 사이의 분산으로 계산한다.
+ * 층마다 window 가 하나라 층 안의 분산을 따로 구할 수 없으므로 window 사이의 분산으로 근사한다(층 사이의 차이가 포함되어 보수적이다).
+ * 비율 추정량 p = Σy / Σm 의 분산을 (1 - f) · Σ(y - p·m)² / ((k-1)·k·m̄²) 로 추정하고, 자유도 k-1 의 t 분포로
+ * 95% 신뢰구간 반폭 t · sqrt(분산) · N 을 구한다. (k: window 수, y: window 에서 조건에 맞는 행 수, m: window 의 행 수,
+ * m̄: window 평균 행 수, N: 전체 회원 수, f = Σm / N: 표본 비율 - 유한 모집단 보정)
+ * window 가 몇 개 안 되면 분산 추정 자체가 흔들리므로 같은 보정을 한 행 단위 단순 임의 표본 공식
+ * 1.96 * sqrt((1 - f) · p(1-p)/n) * N 보다 작게 잡지 않는다. 표본에서 하나도 맞지 않으면 3/n * N (rule of three) 을 오차 한계로 쓴다.
+ * window 가 층 전체를 덮을 만큼 넓으면 전체를 센 것이므로 정확한 값을 돌려준다.
+ * id 가 연속으로 할당되어 있다고 가정하므로 id 순서와 조건 사이에 강한 상관이 있으면 오차가 커질 수 있다.
+ */
+@Component
+public class MemberCountEstimator {
+
+    private static final MemberSearchCondition ALL = new MemberSearchCondition();
+    /** 자유도 1 ~ 30 인 t 분포의 0.975 분위수. 그보다 크면 1.96 */
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+
+    private final JPAQueryFactory queryFactory;
+    private final MemberBitmapIndex bitmapIndex;
+    private final MemberCountCache countCache;
+    private final int sampleSize;
+    private final int windows;
+    private final Supplier<Random> random;
+
+    @Autowired
+    public MemberCountEstimator(EntityManager em,
+                                MemberBitmapIndex bitmapIndex,
+                                MemberCountCache countCache,
+                                @Value("${member.count-estimate.sample-size:10000}") int sampleSize,
+                                @Value("${member.count-estimate.windows:4}") int windows) {
+        this(em, bitmapIndex, countCache, sampleSize, windows, ThreadLocalRandom::current);
+    }
+
+    /**
+     * @param random window 위치를 고를 난수 - 테스트에서 seed 를 고정할 때 사용한다.
+     */
+    MemberCountEstimator(EntityManager em, MemberBitmapIndex bitmapIndex, MemberCountCache countCache,
+                         int sampleSize, int windows, Supplier<Random> random) {
+        Assert.isTrue(sampleSize > 0, "Sample size must be positive!");
+        // window 가 하나면 window 사이의 분산을 구할 수 없다.
+        Assert.isTrue(windows > 1, "Windows must be at least two!");
+        this.random = random;
+        this.queryFactory = new JPAQueryFactory(em);
+        this.bitmapIndex = bitmapIndex;
+        this.countCache = countCache;
+        this.sampleSize = sampleSize;
+        this.windows = windows;
+    }
+
+    /**
+     * @param countQuery 조건이 적용된 member count 쿼리 - 표본 window 조건을 더해서 실행한다.
+     */
+    public CountEstimate estimate(MemberSearchCondition condition, JPAQuery<Long> countQuery) {
+        if (!hasText(condition.getUsername())) {
+            Optional<Long> counted = bitmapIndex.count(condition);
+            if (counted.isPresent()) {
+                return CountEstimate.exact(counted.get());
+            }
+        } else {
+            return CountEstimate.exact(countCache.count(condition, countQuery::fetchOne));
+        }
+
+        long total = countCache.count(ALL, () -> queryFactory.select(member.count()).from(member).fetchOne());
+        if (total <= sampleSize) {
+            return CountEstimate.exact(countCache.count(condition, countQuery::fetchOne));
+        }
+        Tuple range = queryFactory.select(member.id.min(), member.id.max()).from(member).fetchOne();
+        if (range == null || range.get(member.id.min()) == null) {
+            return CountEstimate.exact(0);
+        }
+        long minId = range.get(member.id.min());
+        long maxId = range.get(member.id.max());
+        return sample(countQuery, total, minId, maxId);
+    }
+
+    private CountEstimate sample(JPAQuery<Long> countQuery, long total, long minId, long maxId) {
+        long span = maxId - minId + 1;
+        long stratum = (span + windows - 1) / windows;
+        // 한 window 에 sampleSize / windows 행 정도가 들어가도록 id 폭을 정한다. 층보다 넓을 수는 없다.
+        long width = Math.min(stratum, Math.max(1, (long) Math.ceil((double) sampleSize / windows * span / total)));
+        long[] windowMatched = new long[windows];
+        long[] windowRows = new long[windows];
+        long matched = 0;
+        long sampled = 0;
+        Random random = this.random.get();
+        for (int i = 0; i < windows; i++) {
+            long stratumFrom = minId + i * stratum;
+            long stratumTo = Math.min(stratumFrom + stratum - 1, maxId);
+            long slack = Math.max(0, stratumTo - stratumFrom + 1 - width);
+            long from = stratumFrom + random.longs(1, 0, slack + 1).findFirst().getAsLong();
+            long to = Math.min(from + width - 1, stratumTo);
+            Long y = countQuery.clone().where(member.id.between(from, to)).fetchOne();
+            Long m = queryFactory.select(member.count()).from(member).where(member.id.between(from, to)).fetchOne();
+            windowMatched[i] = y == null ? 0 : y;
+            windowRows[i] = m == null ? 0 : m;
+            matched += windowMatched[i];
+            sampled += windowRows[i];
+        }
+        if (width == stratum) {
+            // 겹치지 않는 window 들이 id 범위 전체를 덮었다.
+            return CountEstimate.exact(matched);
+        }
+        if (sampled == 0) {
+            return CountEstimate.exact(countQuery.fetchOne());
+        }
+
+        double p = (double) matched / sampled;
+        long value = Math.round(p * total);
+        double finitePopulation = Math.max(0, 1 - (double) sampled / total);
+        double bound;
+        if (matched == 0) {
+            bound = 3.0 / sampled * total;
+        } else {
+            double meanRows = (double) sampled / windows;
+            double squares = 0;
+            for (int i = 0; i < windows; i++) {
+                double residual = windowMatched[i] - p * windowRows[i];
+                squares += residual * residual;
+            }
+            double variance = finitePopulation * squares / (windows - 1) / (windows * meanRows * meanRows);
+            double t = windows - 1 <= T_975.length ? T_975[windows - 2] : 1.96;
+            double clusterBound = t * Math.sqrt(variance) * total;
+            double rowBound = 1.96 * Math.sqrt(finitePopulation * p * (1 - p) / sampled) * total;
+            bound = Math.max(clusterBound, rowBound);
+        }
+        return CountEstimate.approximate(value, (long) Math.ceil(bound));
+    }
+}
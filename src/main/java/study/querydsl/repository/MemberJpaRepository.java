@@ -1,17 +1,31 @@
 package study.querydsl.repository;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.jpa.QueryHints;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.entity.QTeam;
+import study.querydsl.repository.cache.TeamIdCache;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
@@ -22,38 +36,45 @@ public class MemberJpaRepository {
 
     private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final TeamIdCache teamIdCache;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, TeamIdCache teamIdCache) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.teamIdCache = teamIdCache;
     }
 
     public void save(Member member) {
         em.persist(member);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member findMember = em.find(Member.class, id);
         return Optional.ofNullable(findMember);
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll_Qeurydsl() {
         return queryFactory
                 .selectFrom(member)
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createQuery("select m from Member m where m.username = :username", Member.class)
                 .setParameter("username", username)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername_Querydsl(String username) {
         return queryFactory
                 .selectFrom(member)
@@ -63,6 +84,7 @@ public class MemberJpaRepository {
 
     //Builder 사용
 //회원명, 팀명, 나이(ageGoe, ageLoe)
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
@@ -90,6 +112,7 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
@@ -107,10 +130,63 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    /**
+     * 검색 결과를 forward-only 커서로 한 건씩 읽는다.
+     * JDBC fetch size 만큼씩 가져오므로 결과 전체를 메모리에 올리지 않는다. 사용한 뒤에는 반드시 close 해야 한다.
+     */
+    public Stream<MemberTeamDto> searchStream(MemberSearchCondition condition, int fetchSize) {
+        return queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .stream();
+    }
+
+    /**
+     * 검색 결과를 DTO 나 Tuple 로 만들지 않고 (member.id, username, age, team.id, team.name) 컬럼 그대로 forward-only 커서로 읽는다.
+     * Querydsl 로 JPQL 과 파라미터만 만들고 Hibernate 쿼리로 직접 실행해서 projection 변환(ResultTransformer)을 거치지 않는다.
+     * 사용한 뒤에는 반드시 close 해야 한다.
+     */
+    public ScrollableResults searchRows(MemberSearchCondition condition, int fetchSize) {
+        JPAQuery<Tuple> query = queryFactory
+                .select(member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(query.getMetadata(), false, null);
+        Query jpaQuery = em.createQuery(serializer.toString());
+        JPAUtil.setConstants(jpaQuery, serializer.getConstantToLabel(), query.getMetadata().getParams());
+
+        return jpaQuery.unwrap(org.hibernate.query.Query.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    @Transactional(readOnly = true)
     public List<Member> searchMember(MemberSearchCondition condition) {
         return queryFactory
                 .selectFrom(member)
-                .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
@@ -122,8 +198,24 @@ public class MemberJpaRepository {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    /**
+     * 팀 이름 조건을 TeamIdCache 로 팀 id 조건으로 바꾼다. member.team.id 는 FK 컬럼이므로 team 조인이 필요 없다.
+     * 사전에 없는 이름(아직 커밋되지 않았거나 사전을 다시 읽기 전에 추가된 팀)이면 team.name 을 비교하는 서브쿼리로 찾는다.
+     * 서브쿼리는 바깥 쿼리의 team 조인과 관계없으므로 조인이 없는 쿼리나 select 절의 case 식에도 쓸 수 있다.
+     */
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+        if (!hasText(teamName)) {
+            return null;
+        }
+        List<Long> teamIds = teamIdCache.findIds(teamName);
+        if (teamIds.isEmpty()) {
+            QTeam namedTeam = new QTeam("namedTeam");
+            return member.team.id.in(JPAExpressions
+                    .select(namedTeam.id)
+                    .from(namedTeam)
+                    .where(namedTeam.name.eq(teamName)));
+        }
+        return teamIds.size() == 1 ? member.team.id.eq(teamIds.get(0)) : member.team.id.in(teamIds);
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
@@ -0,0 +1,141 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.KeysetCursor;
+
+import java.util.Arrays;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * Keyset 페이징에서 사용할 수 있는 정렬 키
+ * <p>
+ * 모든 정렬은 {@code member.id} 를 보조 키로 사용해서 (정렬 키, id) 가 항상 유일하도록 만든다.
+ */
+public enum MemberKeysetSort {
+
+    ID("id") {
+        @Override
+        public OrderSpecifier<?>[] orders() {
+            return new OrderSpecifier[]{member.id.asc()};
+        }
+
+        @Override
+        BooleanExpression after(KeysetCursor cursor) {
+            return member.id.gt(cursor.getId());
+        }
+
+        @Override
+        String valueOf(MemberTeamDto dto) {
+            return String.valueOf(dto.getMemberId());
+        }
+    },
+
+    AGE("age") {
+        @Override
+        public OrderSpecifier<?>[] orders() {
+            return new OrderSpecifier[]{member.age.asc(), member.id.asc()};
+        }
+
+        @Override
+        BooleanExpression after(KeysetCursor cursor) {
+            int age = Integer.parseInt(cursor.getValue());
+            return member.age.gt(age)
+                    .or(member.age.eq(age).and(member.id.gt(cursor.getId())));
+        }
+
+        @Override
+        String valueOf(MemberTeamDto dto) {
+            return String.valueOf(dto.getAge());
+        }
+    },
+
+    /**
+     * username 이 null 인 회원은 seek 조건으로 비교할 수 없으므로 결과에서 제외한다.
+     */
+    USERNAME("username") {
+        @Override
+        public OrderSpecifier<?>[] orders() {
+            return new OrderSpecifier[]{member.username.asc(), member.id.asc()};
+        }
+
+        @Override
+        BooleanExpression filter() {
+            return member.username.isNotNull();
+        }
+
+        @Override
+        BooleanExpression after(KeysetCursor cursor) {
+            String username = cursor.getValue();
+            return member.username.gt(username)
+                    .or(member.username.eq(username).and(member.id.gt(cursor.getId())));
+        }
+
+        @Override
+        String valueOf(MemberTeamDto dto) {
+            return dto.getUsername();
+        }
+    };
+
+    private final String key;
+
+    MemberKeysetSort(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public abstract OrderSpecifier<?>[] orders();
+
+    abstract BooleanExpression after(KeysetCursor cursor);
+
+    abstract String valueOf(MemberTeamDto dto);
+
+    BooleanExpression filter() {
+        return null;
+    }
+
+    /**
+     * 커서가 가리키는 행 다음부터 조회하는 seek 조건. 커서가 없으면 첫 페이지이므로 null
+     */
+    BooleanExpression seek(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        KeysetCursor decoded = KeysetCursor.decode(cursor);
+        if (!key.equals(decoded.getSortKey())) {
+            throw new IllegalArgumentException(
+                    "Cursor was issued for sort '" + decoded.getSortKey() + "', not '" + key + "'");
+        }
+        try {
+            return after(decoded);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * 커서가 이 정렬로 발급된 올바른 커서인지 검사한다. 잘못된 커서면 IllegalArgumentException
+     */
+    public void checkCursor(String cursor) {
+        seek(cursor);
+    }
+
+    KeysetCursor cursorOf(MemberTeamDto last) {
+        return new KeysetCursor(key, valueOf(last), last.getMemberId());
+    }
+
+    public static MemberKeysetSort from(String key) {
+        if (key == null || key.isEmpty()) {
+            return ID;
+        }
+        return Arrays.stream(values())
+                .filter(sort -> sort.key.equalsIgnoreCase(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported keyset sort: " + key));
+    }
+}
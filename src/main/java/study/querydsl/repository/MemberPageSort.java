@@ -0,0 +1,95 @@
+package study.querydsl.repository;
+
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 페이징 조회(searchPageSimple, searchPageComplex)에서 사용할 수 있는 정렬 키
+ * <p>
+ * 정렬 키는 {@code MemberTeamDto} 의 속성 이름이다. member 테이블의 인덱스 하나로 정렬할 수 있는 키만 허용한다.
+ * <ul>
+ * <li>memberId - PK</li>
+ * <li>username - idx_member_username</li>
+ * <li>age - idx_member_age</li>
+ * </ul>
+ * team.name 같은 조인한 테이블의 컬럼은 member 를 페이징하는 인덱스가 없으므로(조인 후 filesort) 허용하지 않는다.
+ * 알 수 없는 키는 거부하고, 허용된 조합을 벗어나는 뒤쪽 키는 버린다.
+ * 모든 정렬은 {@code member.id} 를 마지막 키로 사용해서 페이지 사이의 순서가 흔들리지 않게 한다.
+ * member.id 는 마지막 키와 같은 방향이라 (키, id) 인덱스를 정방향이나 역방향으로 그대로 읽는다.
+ */
+public enum MemberPageSort {
+
+    MEMBER_ID("memberId", member.id),
+    USERNAME("username", member.username),
+    AGE("age", member.age);
+
+    private static final List<List<MemberPageSort>> INDEXED = Arrays.asList(
+            Arrays.asList(MEMBER_ID),
+            Arrays.asList(USERNAME),
+            Arrays.asList(AGE));
+
+    private final String key;
+    private final ComparableExpressionBase<?> path;
+
+    MemberPageSort(String key, ComparableExpressionBase<?> path) {
+        this.key = key;
+        this.path = path;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Pageable 의 정렬을 허용된 키 목록으로 바꾼다. 인덱스로 정렬할 수 없는 조합이면 가능한 앞부분만 남긴다.
+     *
+     * @throws IllegalArgumentException 알 수 없는 정렬 키
+     */
+    public static List<Sort.Order> supported(Sort sort) {
+        List<Sort.Order> orders = new ArrayList<>();
+        List<MemberPageSort> keys = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            MemberPageSort key = from(order.getProperty());
+            keys.add(key);
+            if (!INDEXED.contains(keys)) {
+                break;
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * 허용된 정렬을 Querydsl 정렬 조건으로 바꾼다. 정렬이 없으면 member.id 순서다.
+     * 마지막 키가 member.id 가 아니면 마지막 키와 같은 방향의 member.id 를 덧붙인다.
+     */
+    public static OrderSpecifier<?>[] orders(Sort sort) {
+        List<OrderSpecifier<?>> specifiers = new ArrayList<>();
+        boolean byId = false;
+        boolean ascending = true;
+        for (Sort.Order order : supported(sort)) {
+            MemberPageSort key = from(order.getProperty());
+            specifiers.add(order.isAscending() ? key.path.asc() : key.path.desc());
+            byId = key == MEMBER_ID;
+            ascending = order.isAscending();
+        }
+        if (!byId) {
+            specifiers.add(ascending ? member.id.asc() : member.id.desc());
+        }
+        return specifiers.toArray(new OrderSpecifier[0]);
+    }
+
+    public static MemberPageSort from(String key) {
+        return Arrays.stream(values())
+                .filter(sort -> sort.key.equalsIgnoreCase(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported sort: " + key));
+    }
+}
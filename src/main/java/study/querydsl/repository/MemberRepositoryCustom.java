@@ -4,13 +4,26 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.KeysetPage;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
+    List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions);
+
+    List<MemberTeamDto> searchByIds(Collection<Long> ids);
+
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
 
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+    EstimatedPage<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable, CountMode countMode);
+
+    EstimatedPage<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, CountMode countMode);
+
+    KeysetPage<MemberTeamDto> searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort, String cursor, int size);
 }
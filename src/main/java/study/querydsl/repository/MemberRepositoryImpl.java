@@ -1,35 +1,106 @@
 package study.querydsl.repository;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.entity.QTeam;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.cache.MemberSearchCache;
+import study.querydsl.repository.cache.TeamIdCache;
+import study.querydsl.repository.memory.MemberBitmapIndex;
+import study.querydsl.repository.memory.MemberColumnStore;
+import study.querydsl.repository.support.CountQueryOptimizer;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.KeysetPage;
+import study.querydsl.repository.support.statement.RepositoryCall;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
 
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.springframework.util.StringUtils.hasText;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
     private final JPAQueryFactory queryFactory;
+    private final MemberCountCache countCache;
+    private final MemberSearchCache searchCache;
+    private final MemberSearchCoalescer coalescer;
+    private final TeamIdCache teamIdCache;
+    private final MemberColumnStore memberColumnStore;
+    private final MemberBitmapIndex memberBitmapIndex;
+    private final MemberCountEstimator countEstimator;
+    private final long deferredJoinThreshold;
+    private final int batchConditionsPerQuery;
+    private final int multiGetChunkSize;
 
-    public MemberRepositoryImpl(EntityManager em) {
+    public MemberRepositoryImpl(EntityManager em, MemberCountCache countCache, MemberSearchCache searchCache,
+                                MemberSearchCoalescer coalescer, TeamIdCache teamIdCache,
+                                MemberColumnStore memberColumnStore, MemberBitmapIndex memberBitmapIndex,
+                                MemberCountEstimator countEstimator,
+                                @Value("${member.deferred-join.offset-threshold:1000}") long deferredJoinThreshold,
+                                @Value("${member.batch-search.conditions-per-query:16}") int batchConditionsPerQuery,
+                                @Value("${member.multi-get.chunk-size:256}") int multiGetChunkSize) {
         this.queryFactory = new JPAQueryFactory(em);
+        this.countCache = countCache;
+        this.searchCache = searchCache;
+        this.coalescer = coalescer;
+        this.teamIdCache = teamIdCache;
+        this.memberColumnStore = memberColumnStore;
+        this.memberBitmapIndex = memberBitmapIndex;
+        this.countEstimator = countEstimator;
+        this.deferredJoinThreshold = deferredJoinThreshold;
+        this.batchConditionsPerQuery = batchConditionsPerQuery;
+        this.multiGetChunkSize = multiGetChunkSize;
     }
 
+    /**
+     * 읽기 전용 트랜잭션이면 결과 캐시({@link MemberSearchCache}), 메모리 스냅샷({@link MemberColumnStore}) 순서로 찾고,
+     * 동시에 들어온 같은 조건의 호출은 하나로 합친다({@link MemberSearchCoalescer}).
+     * 쓰기 트랜잭션에 참여한 경우에는 커밋되지 않은 변경이 캐시와 스냅샷에 없으므로 DB 를 읽는다.
+     */
     @Override
     public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return coalescer.search(condition, () -> searchCache.search(condition,
+                    () -> memberColumnStore.search(condition).orElseGet(() -> fetchSearch(condition))));
+        }
+        return fetchSearch(condition);
+    }
+
+    private List<MemberTeamDto> fetchSearch(MemberSearchCondition condition) {
         return queryFactory
                 .select(new QMemberTeamDto(
                         member.id,
@@ -46,6 +117,112 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                 .fetch();
     }
 
+    /**
+     * 여러 조건의 검색을 쿼리 몇 번으로 처리한다.
+     * 조건 batch-search.conditions-per-query 개마다 쿼리 하나를 실행한다. where 절은 조건들의 OR 이고,
+     * select 절에 조건마다 "case when 조건 then 1 else 0 end" 표시 컬럼을 두어 행이 어느 조건에 맞는지 구분한다.
+     * 여러 조건에 맞는 행은 각 조건의 결과에 모두 들어간다(같은 DTO 를 공유한다).
+     *
+     * @return 조건 순서대로 각 조건의 검색 결과
+     */
+    @Override
+    public List<List<MemberTeamDto>> searchBatch(List<MemberSearchCondition> conditions) {
+        List<List<MemberTeamDto>> results = new ArrayList<>(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            results.add(new ArrayList<>());
+        }
+        for (int from = 0; from < conditions.size(); from += batchConditionsPerQuery) {
+            int to = Math.min(from + batchConditionsPerQuery, conditions.size());
+            searchBatch(conditions, from, to, results);
+        }
+        return results;
+    }
+
+    private void searchBatch(List<MemberSearchCondition> conditions, int from, int to,
+                             List<List<MemberTeamDto>> results) {
+        QMemberTeamDto dto = new QMemberTeamDto(
+                member.id,
+                member.username,
+                member.age,
+                team.id,
+                team.name);
+        List<Expression<?>> select = new ArrayList<>();
+        select.add(dto);
+        List<NumberExpression<Integer>> matches = new ArrayList<>();
+        List<Predicate> predicates = new ArrayList<>();
+        boolean matchAll = false;
+        for (int i = from; i < to; i++) {
+            Predicate predicate = predicate(conditions.get(i));
+            matchAll |= predicate == null;
+            predicates.add(predicate);
+            NumberExpression<Integer> match = new CaseBuilder()
+                    .when(predicate == null ? Expressions.TRUE.isTrue() : predicate).then(Expressions.ONE)
+                    .otherwise(Expressions.ZERO);
+            matches.add(match);
+            select.add(match);
+        }
+
+        List<Tuple> rows = queryFactory
+                .select(select.toArray(new Expression[0]))
+                .from(member)
+                .leftJoin(member.team, team)
+                // 조건이 없는 검색이 하나라도 있으면 모든 행을 읽는다.
+                .where(matchAll ? null : ExpressionUtils.anyOf(predicates))
+                .fetch();
+
+        for (Tuple row : rows) {
+            MemberTeamDto found = row.get(dto);
+            for (int i = 0; i < matches.size(); i++) {
+                Number match = row.get(matches.get(i));
+                if (match != null && match.intValue() == 1) {
+                    results.get(from + i).add(found);
+                }
+            }
+        }
+    }
+
+    /**
+     * id 목록으로 회원을 조회한다. 결과는 입력 순서를 따르고, 없는 id 는 빠지며 중복된 id 는 한 번만 조회한다.
+     * id 를 multi-get.chunk-size 개씩 나눠 조회한다.
+     * Hibernate 는 IN 목록의 크기마다 다른 SQL 과 쿼리 플랜을 만드는데, hibernate.query.in_clause_parameter_padding 설정으로
+     * 바인딩 파라미터 수를 2의 거듭제곱으로 맞춰 플랜 캐시 항목이 log2(chunk-size) 개 정도로 줄어든다.
+     */
+    @Override
+    public List<MemberTeamDto> searchByIds(Collection<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, MemberTeamDto> rows = new HashMap<>(distinctIds.size() * 2);
+        for (int from = 0; from < distinctIds.size(); from += multiGetChunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + multiGetChunkSize, distinctIds.size()));
+            for (MemberTeamDto row : queryFactory
+                    .select(new QMemberTeamDto(
+                            member.id,
+                            member.username,
+                            member.age,
+                            team.id,
+                            team.name))
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(member.id.in(chunk))
+                    .fetch()) {
+                rows.put(row.getMemberId(), row);
+            }
+        }
+        return ids.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    /**
+     * 검색 조건 하나의 where 조건, 조건이 없으면 null
+     */
+    private Predicate predicate(MemberSearchCondition condition) {
+        return ExpressionUtils.allOf(usernameEq(condition.getUsername()),
+                teamNameEq(condition.getTeamName()),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe()));
+    }
+
     @Override
     public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
         QueryResults<MemberTeamDto> result = queryFactory
@@ -61,6 +238,7 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(MemberPageSort.orders(pageable.getSort()))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetchResults();
@@ -71,9 +249,74 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
         return new PageImpl<>(content, pageable, total);
     }
 
+    /**
+     * 읽기 전용 트랜잭션이면 앞쪽 페이지는 결과 캐시({@link MemberSearchCache})에서 찾고,
+     * 동시에 들어온 같은 조건, 같은 페이지의 호출은 하나로 합친다({@link MemberSearchCoalescer}).
+     */
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content = queryFactory
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return coalescer.page(condition, pageable,
+                    () -> searchCache.page(condition, pageable, () -> fetchPageComplex(condition, pageable)));
+        }
+        return fetchPageComplex(condition, pageable);
+    }
+
+    private Page<MemberTeamDto> fetchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+
+        // where 절이 team 을 참조하지 않으면 count 쿼리에서는 team 조인이 제거된다.
+        JPAQuery<Long> countQuery = CountQueryOptimizer.countQuery(queryFactory, query);
+
+        List<MemberTeamDto> content = RepositoryCall.phase("content", () -> pageable.getOffset() >= deferredJoinThreshold
+                ? fetchDeferred(condition, pageable)
+                : query
+                .orderBy(MemberPageSort.orders(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch());
+
+        // return new PageImpl<>(content, pageable, total);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> RepositoryCall.phase("count", () -> count(condition, countQuery)));
+    }
+
+    @Override
+    public EstimatedPage<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable,
+                                                         CountMode countMode) {
+        if (countMode == CountMode.APPROXIMATE) {
+            return searchPageEstimated(condition, pageable);
+        }
+        return EstimatedPage.exact(searchPageSimple(condition, pageable));
+    }
+
+    @Override
+    public EstimatedPage<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable,
+                                                          CountMode countMode) {
+        if (countMode == CountMode.APPROXIMATE) {
+            return searchPageEstimated(condition, pageable);
+        }
+        return EstimatedPage.exact(searchPageComplex(condition, pageable));
+    }
+
+    /**
+     * total 을 {@link MemberCountEstimator} 로 추정한다.
+     * 비트맵이 준비되어 있으면 트랜잭션 종류와 관계없이 커밋된 상태 기준으로 센다 - 어차피 근사값을 허용한 요청이다.
+     */
+    private EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                         member.id,
                         member.username,
@@ -82,33 +325,138 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
                         team.name))
                 .from(member)
                 .leftJoin(member.team, team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()));
+
+        JPAQuery<Long> countQuery = CountQueryOptimizer.countQuery(queryFactory, query);
+
+        List<MemberTeamDto> content = RepositoryCall.phase("content", () -> query
+                .orderBy(MemberPageSort.orders(pageable.getSort()))
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch());
+
+        return EstimatedPage.of(content, pageable,
+                () -> RepositoryCall.phase("count", () -> countEstimator.estimate(condition, countQuery)));
+    }
+
+    /**
+     * 깊은 offset 페이지는 member.id 만 먼저 골라낸 뒤(late row lookup) 그 id 들의 행만 조인해서 읽는다.
+     * 건너뛰는 행은 인덱스 안에서만 읽히고 team 조인과 DTO 컬럼 조회는 페이지 크기만큼만 일어난다.
+     * 결과 순서는 첫 번째 쿼리의 id 순서를 따른다.
+     */
+    private List<MemberTeamDto> fetchDeferred(MemberSearchCondition condition, Pageable pageable) {
+        List<Long> ids = queryFactory
+                .select(member.id)
+                .from(member)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe()))
+                .orderBy(MemberPageSort.orders(pageable.getSort()))
                 .offset(pageable.getOffset())
                 .limit(pageable.getPageSize())
                 .fetch();
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
 
-        JPAQuery<Member> countQuery = queryFactory
-                .select(member)
+        Map<Long, MemberTeamDto> rows = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(ids))
+                .fetch().stream()
+                .collect(toMap(MemberTeamDto::getMemberId, Function.identity()));
+        // 두 쿼리 사이에 삭제된 회원은 빠진다.
+        return ids.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    /**
+     * 읽기 전용 트랜잭션이면 비트맵({@link MemberBitmapIndex})으로 센다.
+     * username 조건이 있거나 비트맵이 준비되지 않았으면 DB 로 센다.
+     */
+    private long count(MemberSearchCondition condition, JPAQuery<Long> countQuery) {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Optional<Long> counted = memberBitmapIndex.count(condition);
+            if (counted.isPresent()) {
+                return counted.get();
+            }
+        }
+        return countCache.count(condition, countQuery::fetchOne);
+    }
+
+    /**
+     * offset 대신 (정렬 키, member.id) 로 seek 하는 페이징
+     * 페이지가 깊어져도 앞의 행을 건너뛰며 읽지 않으므로 조회 비용이 일정하다.
+     */
+    @Override
+    public KeysetPage<MemberTeamDto> searchKeyset(MemberSearchCondition condition, MemberKeysetSort sort,
+                                                  String cursor, int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must not be less than one!");
+        }
+
+        List<MemberTeamDto> content = queryFactory
+                .select(new QMemberTeamDto(
+                        member.id,
+                        member.username,
+                        member.age,
+                        team.id,
+                        team.name))
                 .from(member)
                 .leftJoin(member.team, team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
+                        ageLoe(condition.getAgeLoe()),
+                        sort.filter(),
+                        sort.seek(cursor))
+                .orderBy(sort.orders())
+                .limit((long) size + 1)
+                .fetch();
 
-        // return new PageImpl<>(content, pageable, total);
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        // 한 건 더 조회해서 다음 페이지 존재 여부를 판단한다.
+        String nextCursor = null;
+        if (content.size() > size) {
+            content = new ArrayList<>(content.subList(0, size));
+            nextCursor = sort.cursorOf(content.get(size - 1)).encode();
+        }
+        return new KeysetPage<>(content, size, nextCursor);
     }
 
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    /**
+     * 팀 이름 조건을 TeamIdCache 로 팀 id 조건으로 바꾼다. member.team.id 는 FK 컬럼이므로 team 조인이 필요 없다.
+     * 사전에 없는 이름(아직 커밋되지 않았거나 사전을 다시 읽기 전에 추가된 팀)이면 team.name 을 비교하는 서브쿼리로 찾는다.
+     * 서브쿼리는 바깥 쿼리의 team 조인과 관계없으므로 조인이 없는 쿼리나 select 절의 case 식에도 쓸 수 있다.
+     */
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+        if (!hasText(teamName)) {
+            return null;
+        }
+        List<Long> teamIds = teamIdCache.findIds(teamName);
+        if (teamIds.isEmpty()) {
+            QTeam namedTeam = new QTeam("namedTeam");
+            return member.team.id.in(JPAExpressions
+                    .select(namedTeam.id)
+                    .from(namedTeam)
+                    .where(namedTeam.name.eq(teamName)));
+        }
+        return teamIds.size() == 1 ? member.team.id.eq(teamIds.get(0)) : member.team.id.in(teamIds);
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
@@ -0,0 +1,65 @@
+package study.querydsl.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.SingleFlight;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 같은 조건의 회원 검색이 동시에 들어오면 DB 조회 한 번으로 합친다.
+ * <p>
+ * 캐시가 만료된 인기 조건에 요청이 몰려도 같은 SQL 이 동시에 여러 번 실행되지 않는다.
+ * 합쳐진 호출들은 같은 DTO 목록을 공유하므로 결과를 수정하면 안 된다.
+ * 커밋된 상태만 보는 읽기 전용 트랜잭션에서만 사용한다 - 다른 호출의 결과에는 내 트랜잭션의 변경이 없다.
+ */
+@Component
+public class MemberSearchCoalescer {
+
+    private final SingleFlight<List<Object>, Object> singleFlight;
+    private final boolean enabled;
+
+    public MemberSearchCoalescer(@Value("${member.search-coalescing.enabled:true}") boolean enabled,
+                                 @Value("${member.search-coalescing.max-wait:2s}") Duration maxWait) {
+        this.singleFlight = new SingleFlight<>(maxWait);
+        this.enabled = enabled;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return (List<MemberTeamDto>) singleFlight.execute(
+                Arrays.asList("search", condition.normalized()), call::get);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<MemberTeamDto> page(MemberSearchCondition condition, Pageable pageable,
+                                    Supplier<Page<MemberTeamDto>> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        return (Page<MemberTeamDto>) singleFlight.execute(
+                Arrays.asList("page", condition.normalized(), pageable), call::get);
+    }
+
+    public long getExecutions() {
+        return singleFlight.getExecutions();
+    }
+
+    public long getCoalesced() {
+        return singleFlight.getCoalesced();
+    }
+
+    public long getTimeouts() {
+        return singleFlight.getTimeouts();
+    }
+}
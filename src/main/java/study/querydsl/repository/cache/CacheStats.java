@@ -0,0 +1,31 @@
+package study.querydsl.repository.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+    /** 무게를 재는 캐시면 항목 무게(추정 바이트 수) 합계, 아니면 0 */
+    private final long weight;
+
+    public CacheStats(long hits, long misses, long evictions, long invalidations, int size, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.weight = weight;
+    }
+
+    public double getHitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
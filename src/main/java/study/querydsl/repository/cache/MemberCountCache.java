@@ -0,0 +1,64 @@
+package study.querydsl.repository.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeHandler;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * 회원 검색 count 쿼리 결과 캐시
+ * <p>
+ * 정규화한 {@link MemberSearchCondition} 을 키로 사용하고, Member/Team 이 변경되면 전체를 무효화한다.
+ * 읽기 전용 트랜잭션에서만 캐시를 사용한다. 쓰기 트랜잭션이 자신의 커밋되지 않은 변경으로 센 값을
+ * 다른 트랜잭션이 보지 않도록 그 밖에는 항상 count 쿼리를 실행한다.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class MemberCountCache implements EntityChangeHandler {
+
+    private final TtlCache<MemberSearchCondition, Long> cache;
+
+    public MemberCountCache(@Value("${member.count-cache.max-size:1000}") int maxSize,
+                            @Value("${member.count-cache.ttl:30s}") Duration ttl) {
+        this.cache = new TtlCache<>(maxSize, ttl);
+    }
+
+    public long count(MemberSearchCondition condition, LongSupplier countQuery) {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return countQuery.getAsLong();
+        }
+        return cache.get(condition.normalized(), countQuery::getAsLong);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void onFlush(EntityChange change) {
+        if (change.isFor(Member.class, Team.class)) {
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void afterCompletion(EntityChange change, boolean committed) {
+        // 롤백된 트랜잭션 안에서 계산된 count 가 캐시에 남지 않도록 커밋 여부와 관계없이 다시 무효화한다.
+        if (change.isFor(Member.class, Team.class)) {
+            cache.invalidateAll();
+        }
+    }
+}
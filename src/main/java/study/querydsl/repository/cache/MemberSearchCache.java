@@ -0,0 +1,269 @@
+package study.querydsl.repository.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberPageSort;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeHandler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색 결과 캐시 - search 결과와 searchPageComplex 의 앞쪽 페이지
+ * <p>
+ * 정규화한 조건, 페이지 번호/크기, 정렬을 키로 사용한다. 항목마다 결과의 무게(추정 바이트 수)를 재서
+ * 항목 수와 무게 합계가 한도를 넘으면 오래 사용하지 않은 항목부터 버린다.
+ * <p>
+ * 읽기 전용 트랜잭션에서만 캐시를 쓴다. 쓰는 트랜잭션은 자기가 flush 한 변경을 봐야 하고, 커밋되지 않은 변경으로
+ * 계산한 결과가 캐시에 남으면 안 되기 때문이다. 따라서 flush 할 때는 무효화할 필요가 없고, 트랜잭션이 커밋된 뒤
+ * 그 트랜잭션의 변경을 모아 캐시를 한 번만 훑어서 변경된 엔티티와 관계있는 항목만 무효화한다. 롤백되면 무효화하지 않는다.
+ * <ul>
+ * <li>Member - 변경 전 또는 변경 후 상태가 검색 조건에 맞는 항목</li>
+ * <li>Team - 팀 이름 조건이 있거나 결과에 그 팀의 회원이 있는 항목</li>
+ * <li>벌크 연산 - 전체</li>
+ * </ul>
+ * 결과는 메모리 스냅샷으로 계산했을 수 있으므로 스냅샷이 커밋을 반영한 뒤에 무효화한다 - 먼저 무효화하면 그 사이의 검색이
+ * 이전 스냅샷으로 계산한 결과를 다시 캐시한다.
+ * 캐시된 DTO 는 여러 호출이 공유하므로 수정하면 안 된다.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class MemberSearchCache implements EntityChangeHandler {
+
+    private final TtlCache<Key, Cached> cache;
+    private final TeamIdCache teamIdCache;
+    private final boolean enabled;
+    private final int maxPages;
+
+    public MemberSearchCache(TeamIdCache teamIdCache,
+                             @Value("${member.search-cache.enabled:false}") boolean enabled,
+                             @Value("${member.search-cache.max-size:1000}") int maxSize,
+                             @Value("${member.search-cache.max-weight:16MB}") DataSize maxWeight,
+                             @Value("${member.search-cache.ttl:30s}") Duration ttl,
+                             @Value("${member.search-cache.max-pages:3}") int maxPages) {
+        this.cache = new TtlCache<>(maxSize, maxWeight.toBytes(), ttl, cached -> cached.weight);
+        this.teamIdCache = teamIdCache;
+        this.enabled = enabled;
+        this.maxPages = maxPages;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition, Supplier<List<MemberTeamDto>> loader) {
+        if (!enabled || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        Key key = new Key(condition.normalized(), null, null);
+        Cached cached = cache.get(key, () -> {
+            List<MemberTeamDto> rows = Collections.unmodifiableList(loader.get());
+            return new Cached(rows, rows, teamIds(key.condition));
+        });
+        @SuppressWarnings("unchecked")
+        List<MemberTeamDto> result = (List<MemberTeamDto>) cached.result;
+        return result;
+    }
+
+    /**
+     * 페이지가 캐시 대상(앞쪽 max-pages 페이지)이 아니거나 읽기 전용 트랜잭션이 아니면 바로 조회한다.
+     */
+    public Page<MemberTeamDto> page(MemberSearchCondition condition, Pageable pageable,
+                                    Supplier<Page<MemberTeamDto>> loader) {
+        if (!enabled || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || pageable.isUnpaged() || pageable.getPageNumber() >= maxPages) {
+            return loader.get();
+        }
+        Key key = new Key(condition.normalized(), pageable, MemberPageSort.supported(pageable.getSort()));
+        Cached cached = cache.get(key, () -> {
+            Page<MemberTeamDto> page = loader.get();
+            return new Cached(page, page.getContent(), teamIds(key.condition));
+        });
+        @SuppressWarnings("unchecked")
+        Page<MemberTeamDto> result = (Page<MemberTeamDto>) cached.result;
+        return result;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void afterCompletion(List<EntityChange> changes, boolean committed) {
+        if (committed) {
+            invalidate(changes);
+        }
+    }
+
+    private void invalidate(List<EntityChange> changes) {
+        Set<Long> teamIds = new HashSet<>();
+        List<MemberState> members = new ArrayList<>();
+        for (EntityChange change : changes) {
+            if (!change.isFor(Member.class, Team.class)) {
+                continue;
+            }
+            if (change.getType() == EntityChange.Type.BULK || change.getEntity() == null) {
+                cache.invalidateAll();
+                return;
+            }
+            if (change.isFor(Team.class)) {
+                teamIds.add((Long) change.getId());
+                continue;
+            }
+            MemberState previous = MemberState.of(change.getPreviousState());
+            if (change.getType() == EntityChange.Type.UPDATE && previous == null) {
+                // 변경 전 상태를 모르면 어느 항목에 있었는지 알 수 없다.
+                cache.invalidateAll();
+                return;
+            }
+            members.add(MemberState.of((Member) change.getEntity()));
+            if (previous != null) {
+                members.add(previous);
+            }
+        }
+        if (teamIds.isEmpty() && members.isEmpty()) {
+            return;
+        }
+        cache.invalidateIf((key, cached) -> {
+            if (!teamIds.isEmpty() && (key.condition.getTeamName() != null
+                    || cached.teamIds.stream().anyMatch(teamIds::contains))) {
+                return true;
+            }
+            for (MemberState member : members) {
+                if (cached.matches(key.condition, member)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 항목을 만들 때의 팀 이름 -> id 사전으로 조건의 팀 id 를 정해 둔다. 트랜잭션이 끝난 뒤 무효화할 때는 사전을 다시 읽지 않는다.
+     */
+    private Set<Long> teamIds(MemberSearchCondition condition) {
+        return hasText(condition.getTeamName())
+                ? new HashSet<>(teamIdCache.findIds(condition.getTeamName()))
+                : null;
+    }
+
+    /**
+     * 결과 객체의 힙 사용량 추정 - DTO 한 건에 객체 헤더와 필드, 박싱된 Long 둘, 문자열 둘
+     */
+    static long weigh(List<MemberTeamDto> rows) {
+        long bytes = 64;
+        for (MemberTeamDto row : rows) {
+            bytes += 80 + weigh(row.getUsername()) + weigh(row.getTeamName());
+        }
+        return bytes;
+    }
+
+    private static long weigh(String value) {
+        return value == null ? 0 : 48 + 2L * value.length();
+    }
+
+    @EqualsAndHashCode
+    @ToString
+    private static class Key {
+        private final MemberSearchCondition condition;
+        /** search 결과면 null */
+        private final Integer page;
+        private final Integer size;
+        private final List<Sort.Order> sort;
+
+        Key(MemberSearchCondition condition, Pageable pageable, List<Sort.Order> sort) {
+            this.condition = condition;
+            this.page = pageable == null ? null : pageable.getPageNumber();
+            this.size = pageable == null ? null : pageable.getPageSize();
+            this.sort = sort;
+        }
+    }
+
+    private static class Cached {
+        private final Object result;
+        /** 조건의 팀 이름에 해당하는 팀 id, 팀 이름 조건이 없으면 null, 사전에 없는 이름이면 비어 있다. */
+        private final Set<Long> conditionTeamIds;
+        /** 결과에 있는 회원들의 팀 id */
+        private final Set<Long> teamIds = new HashSet<>();
+        private final long weight;
+
+        Cached(Object result, List<MemberTeamDto> rows, Set<Long> conditionTeamIds) {
+            this.result = result;
+            this.conditionTeamIds = conditionTeamIds;
+            for (MemberTeamDto row : rows) {
+                if (row.getTeamId() != null) {
+                    teamIds.add(row.getTeamId());
+                }
+            }
+            this.weight = weigh(rows);
+        }
+
+        boolean matches(MemberSearchCondition condition, MemberState member) {
+            if (condition.getUsername() != null && !condition.getUsername().equals(member.username)) {
+                return false;
+            }
+            // 팀 id 를 모르는 팀 이름이면 맞는 것으로 본다.
+            if (conditionTeamIds != null && !conditionTeamIds.isEmpty()
+                    && (member.teamId == null || !conditionTeamIds.contains(member.teamId))) {
+                return false;
+            }
+            if (condition.getAgeGoe() != null && member.age < condition.getAgeGoe()) {
+                return false;
+            }
+            return condition.getAgeLoe() == null || member.age <= condition.getAgeLoe();
+        }
+    }
+
+    private static class MemberState {
+        private final String username;
+        private final int age;
+        private final Long teamId;
+
+        MemberState(String username, int age, Long teamId) {
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+        }
+
+        static MemberState of(Member member) {
+            return new MemberState(member.getUsername(), member.getAge(),
+                    member.getTeam() == null ? null : member.getTeam().getId());
+        }
+
+        /**
+         * Member 의 변경 전 속성 값으로 만든다. 알 수 없으면 null
+         */
+        static MemberState of(Map<String, Object> previous) {
+            if (!previous.containsKey("age")) {
+                return null;
+            }
+            Team team = (Team) previous.get("team");
+            return new MemberState((String) previous.get("username"),
+                    ((Number) Objects.requireNonNull(previous.get("age"))).intValue(),
+                    team == null ? null : team.getId());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package study.querydsl.repository.cache;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeHandler;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 이름 -> 팀 id 목록 사전
+ * <p>
+ * 팀 이름 조건을 {@code member.team.id} 조건으로 바꿔서 team 조인 없이 검색할 수 있게 한다.
+ * 팀 이름은 유일하지 않으므로 이름 하나에 여러 id 가 있을 수 있다.
+ * <p>
+ * 사전은 요청 스레드가 아니라 별도 스레드 하나에서 커밋된 팀만 읽는다. 애플리케이션 시작 후 읽고 ttl 마다 다시 읽는다.
+ * 이 JVM 의 Team 변경 이벤트로 버리면 다시 읽기를 예약하고, 사전에 없는 이름이 들어오면 한 번 더 읽기를 예약한다.
+ * 다시 읽기는 동시에 하나만 실행되고, 실행 중에 들어온 요청은 끝난 뒤 한 번으로 합친다.
+ * 호출한 트랜잭션이 커넥션을 쥔 채로 두 번째 커넥션을 기다리는 일이 없도록 {@link #findIds(String)} 는 DB 를 읽지 않는다.
+ * <p>
+ * 빈 목록은 "모름"이므로 호출하는 쪽은 team.name 비교로 검색해야 한다. 사전이 준비되지 않았거나 만료되었을 때,
+ * 사전에 없는 이름일 때, 쓰는 트랜잭션 안일 때(커밋되지 않은 팀 변경을 사전이 모른다) 빈 목록을 돌려준다.
+ * 다시 읽어도 없던 이름은 ttl 동안 다시 읽기를 예약하지 않는다.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TeamIdCache implements EntityChangeHandler {
+
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final long ttlNanos;
+    private final int maxMissingNames;
+    private final LongSupplier ticker;
+    private final Executor refresher;
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile boolean refreshRequested;
+    /** 만료 시각과 없던 이름들을 새로 시작하는 다시 읽기가 요청되었는지 */
+    private volatile boolean resetRequested;
+    private volatile Snapshot snapshot;
+    private long generation;
+
+    @Autowired
+    public TeamIdCache(EntityManager em, PlatformTransactionManager transactionManager,
+                       @Value("${member.team-id-cache.ttl:60s}") Duration ttl,
+                       @Value("${member.team-id-cache.max-missing-names:1000}") int maxMissingNames) {
+        this(em, transactionManager, ttl, maxMissingNames, System::nanoTime, newScheduler());
+    }
+
+    /**
+     * @param refresher 다시 읽기를 실행할 곳 - 테스트에서는 호출한 스레드에서 바로 실행한다.
+     */
+    TeamIdCache(EntityManager em, PlatformTransactionManager transactionManager,
+                Duration ttl, int maxMissingNames, LongSupplier ticker, Executor refresher) {
+        Assert.isTrue(!ttl.isNegative() && !ttl.isZero(), "TTL must be positive!");
+        this.queryFactory = new JPAQueryFactory(em);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.ttlNanos = ttl.toNanos();
+        this.maxMissingNames = maxMissingNames;
+        this.ticker = ticker;
+        this.refresher = refresher;
+        this.scheduler = refresher instanceof ScheduledExecutorService ? (ScheduledExecutorService) refresher : null;
+    }
+
+    private static ScheduledExecutorService newScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "team-id-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshOnStartup() {
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(() -> requestRefresh(true), 0, ttlNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return 팀 id 목록, 모르면 빈 목록 - 호출하는 쪽은 team.name 으로 검색한다.
+     */
+    public List<Long> findIds(String teamName) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // 이 트랜잭션에서 팀 이름을 바꾸거나 팀을 추가했을 수 있다.
+            return Collections.emptyList();
+        }
+        Snapshot current = snapshot;
+        if (current == null || current.isExpired(ticker.getAsLong())) {
+            requestRefresh(true);
+            current = snapshot;
+            if (current == null || current.isExpired(ticker.getAsLong())) {
+                return Collections.emptyList();
+            }
+        }
+        List<Long> ids = current.idsByName.get(teamName);
+        if (ids != null) {
+            return ids;
+        }
+        if (current.missingNames.size() < maxMissingNames && current.missingNames.add(teamName)) {
+            // 사전을 읽은 뒤 추가된 팀일 수 있다.
+            requestRefresh(false);
+            Snapshot reloaded = snapshot;
+            if (reloaded != null && reloaded != current && reloaded.idsByName.containsKey(teamName)) {
+                return reloaded.idsByName.get(teamName);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * 호출한 스레드에서 사전을 바로 다시 읽는다. 커넥션을 하나 더 쓰므로 트랜잭션 안에서는 호출할 수 없다.
+     */
+    public void refresh() {
+        Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(),
+                "TeamIdCache must not be refreshed inside a transaction!");
+        load(true);
+    }
+
+    public synchronized void invalidate() {
+        snapshot = null;
+        generation++;
+    }
+
+    @Override
+    public void onFlush(EntityChange change) {
+        if (change.isFor(Team.class)) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void afterCompletion(EntityChange change, boolean committed) {
+        if (change.isFor(Team.class)) {
+            invalidate();
+            requestRefresh(true);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 다시 읽기를 예약한다. 이미 읽는 중이면 끝난 뒤 한 번 더 읽는다.
+     *
+     * @param reset false 면 없는 이름 때문에 다시 읽는 것 - 만료 시각과 없던 이름들을 이어받는다.
+     */
+    private void requestRefresh(boolean reset) {
+        if (reset) {
+            resetRequested = true;
+        }
+        refreshRequested = true;
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refresher.execute(this::drainRefreshRequests);
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    private void drainRefreshRequests() {
+        try {
+            while (refreshRequested) {
+                refreshRequested = false;
+                boolean reset = resetRequested;
+                resetRequested = false;
+                try {
+                    load(reset);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to load team id dictionary - searching by team name", e);
+                    return;
+                }
+            }
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private void load(boolean reset) {
+        long loadGeneration;
+        Snapshot previous;
+        synchronized (this) {
+            loadGeneration = generation;
+            previous = snapshot;
+        }
+
+        List<Tuple> rows = readOnlyTransaction.execute(status -> queryFactory
+                .select(team.name, team.id)
+                .from(team)
+                .fetch());
+
+        Map<String, List<Long>> loaded = new HashMap<>();
+        for (Tuple row : rows) {
+            String name = row.get(team.name);
+            if (name != null) {
+                loaded.computeIfAbsent(name, key -> new ArrayList<>(1)).add(row.get(team.id));
+            }
+        }
+        loaded.replaceAll((name, ids) -> Collections.unmodifiableList(ids));
+
+        long now = ticker.getAsLong();
+        Snapshot result = reset || previous == null || previous.isExpired(now)
+                ? new Snapshot(loaded, now + ttlNanos, ConcurrentHashMap.newKeySet())
+                : new Snapshot(loaded, previous.expiresAt, previous.missingNames);
+        synchronized (this) {
+            // 읽는 동안 Team 이 변경되었으면 이번 결과는 버린다. 변경 이벤트가 다시 읽기를 예약한다.
+            if (loadGeneration == generation) {
+                snapshot = result;
+            }
+        }
+    }
+
+    private static class Snapshot {
+        private final Map<String, List<Long>> idsByName;
+        private final long expiresAt;
+        /** 다시 읽어도 없던 이름 - 만료될 때까지 다시 읽지 않는다. */
+        private final Set<String> missingNames;
+
+        Snapshot(Map<String, List<Long>> idsByName, long expiresAt, Set<String> missingNames) {
+            this.idsByName = idsByName;
+            this.expiresAt = expiresAt;
+            this.missingNames = missingNames;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package study.querydsl.repository.cache;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * 크기와 TTL 로 제한되는 LRU 캐시
+ * <p>
+ * 값은 잠금 밖에서 계산한다. 계산 도중 {@link #invalidateAll()} 이나 {@link #invalidateIf(BiPredicate)} 가 호출되면
+ * 계산된 값은 캐시에 넣지 않아서 무효화 이전 상태로 계산한 값이 다시 캐시되는 일을 막는다.
+ * <p>
+ * weigher 를 주면 항목마다 무게(추정 바이트 수)를 재서 무게 합계도 maxWeight 이하로 유지한다.
+ */
+public class TtlCache<K, V> {
+
+    private final int maxSize;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final ToLongFunction<? super V> weigher;
+    private final LongSupplier ticker;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public TtlCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    public TtlCache(int maxSize, long maxWeight, Duration ttl, ToLongFunction<? super V> weigher) {
+        this(maxSize, maxWeight, ttl, weigher, System::nanoTime);
+    }
+
+    TtlCache(int maxSize, Duration ttl, LongSupplier ticker) {
+        this(maxSize, Long.MAX_VALUE, ttl, value -> 0, ticker);
+    }
+
+    TtlCache(int maxSize, long maxWeight, Duration ttl, ToLongFunction<? super V> weigher, LongSupplier ticker) {
+        Assert.isTrue(maxSize > 0, "Max size must be positive!");
+        Assert.isTrue(maxWeight > 0, "Max weight must be positive!");
+        Assert.isTrue(!ttl.isNegative() && !ttl.isZero(), "TTL must be positive!");
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttl.toNanos();
+        this.weigher = weigher;
+        this.ticker = ticker;
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry)) {
+                    hits++;
+                    return entry.value;
+                }
+                remove(key);
+                evictions++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        V value = loader.get();
+        long valueWeight = weigher.applyAsLong(value);
+
+        synchronized (this) {
+            // 한 항목이 전체 무게 한도를 넘으면 캐시하지 않는다.
+            if (loadGeneration == generation && valueWeight <= maxWeight) {
+                Entry<V> previous = entries.put(key, new Entry<>(value, valueWeight, ticker.getAsLong()));
+                if (previous != null) {
+                    weight -= previous.weight;
+                }
+                weight += valueWeight;
+                evictOverflow();
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+        generation++;
+        invalidations++;
+    }
+
+    /**
+     * 조건에 맞는 항목만 무효화한다. 진행 중인 계산은 어떤 키였는지와 관계없이 모두 버린다.
+     *
+     * @return 무효화한 항목 수
+     */
+    public synchronized int invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        int removed = 0;
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> entry = iterator.next();
+            if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                weight -= entry.getValue().weight;
+                iterator.remove();
+                removed++;
+            }
+        }
+        generation++;
+        invalidations++;
+        return removed;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, invalidations, entries.size(), weight);
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ticker.getAsLong() - entry.createdAt >= ttlNanos;
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxSize || weight > maxWeight) && iterator.hasNext()) {
+            weight -= iterator.next().getValue().weight;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long createdAt;
+
+        Entry(V value, long weight, long createdAt) {
+            this.value = value;
+            this.weight = weight;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.repository.event;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 엔티티 변경 한 건
+ * <p>
+ * Hibernate 이벤트에서 만들어지며, JPQL 벌크 연산처럼 개별 엔티티를 알 수 없는 변경은 {@link Type#BULK} 로 표현한다.
+ */
+@Getter
+@ToString(of = {"type", "entityClass", "id"})
+public class EntityChange {
+
+    public enum Type {
+        INSERT, UPDATE, DELETE, BULK
+    }
+
+    private final Type type;
+    private final Class<?> entityClass;
+    private final Serializable id;
+    private final Object entity;
+    /** UPDATE 이전의 속성 값(속성 이름 -> 값). 알 수 없으면 비어 있다. */
+    private final Map<String, Object> previousState;
+
+    public EntityChange(Type type, Class<?> entityClass, Serializable id, Object entity) {
+        this(type, entityClass, id, entity, Collections.emptyMap());
+    }
+
+    public EntityChange(Type type, Class<?> entityClass, Serializable id, Object entity,
+                        Map<String, Object> previousState) {
+        this.type = type;
+        this.entityClass = entityClass;
+        this.id = id;
+        this.entity = entity;
+        this.previousState = previousState;
+    }
+
+    public boolean isFor(Class<?>... types) {
+        for (Class<?> type : types) {
+            if (type.isAssignableFrom(entityClass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,158 @@
+package study.querydsl.repository.event;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Hibernate post-insert/update/delete 이벤트를 {@link EntityChangeHandler} 빈들에게 전달한다.
+ * <p>
+ * 핸들러는 변경마다 flush 시점에 한 번 호출되고, 트랜잭션이 끝난 뒤 그 트랜잭션의 변경 목록과 커밋 여부로 한 번 더 호출된다.
+ */
+@Component
+public class EntityChangeEventListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ObjectProvider<EntityChangeHandler> handlerProvider;
+    private volatile List<EntityChangeHandler> handlers;
+
+    public EntityChangeEventListener(EntityManagerFactory entityManagerFactory,
+                                     ObjectProvider<EntityChangeHandler> handlerProvider) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.handlerProvider = handlerProvider;
+    }
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(new EntityChange(EntityChange.Type.INSERT,
+                event.getPersister().getMappedClass(), event.getId(), event.getEntity()));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(new EntityChange(EntityChange.Type.UPDATE,
+                event.getPersister().getMappedClass(), event.getId(), event.getEntity(), previousState(event)));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(new EntityChange(EntityChange.Type.DELETE,
+                event.getPersister().getMappedClass(), event.getId(), event.getEntity()));
+    }
+
+    /**
+     * merge 처럼 변경 전 스냅샷이 없는 update 면 빈 맵
+     */
+    private Map<String, Object> previousState(PostUpdateEvent event) {
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return Collections.emptyMap();
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        Map<String, Object> previous = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            previous.put(names[i], oldState[i]);
+        }
+        return previous;
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * Hibernate 이벤트를 거치지 않는 변경(JPQL 벌크 연산 등)도 같은 경로로 알린다.
+     */
+    public void publish(EntityChange change) {
+        List<EntityChangeHandler> handlers = getHandlers();
+        for (EntityChangeHandler handler : handlers) {
+            handler.onFlush(change);
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<EntityChange> changes = Collections.singletonList(change);
+            for (EntityChangeHandler handler : handlers) {
+                handler.afterCompletion(changes, true);
+            }
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<EntityChange> pending = (List<EntityChange>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(new PendingChangeSynchronization(pending));
+        }
+        pending.add(change);
+    }
+
+    private List<EntityChangeHandler> getHandlers() {
+        List<EntityChangeHandler> result = handlers;
+        if (result == null) {
+            result = handlerProvider.orderedStream().collect(Collectors.toList());
+            handlers = result;
+        }
+        return result;
+    }
+
+    private class PendingChangeSynchronization implements TransactionSynchronization {
+
+        private final List<EntityChange> changes;
+
+        PendingChangeSynchronization(List<EntityChange> changes) {
+            this.changes = changes;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeEventListener.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(EntityChangeEventListener.this, changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeEventListener.this);
+            boolean committed = status == STATUS_COMMITTED;
+            List<EntityChange> completed = Collections.unmodifiableList(changes);
+            for (EntityChangeHandler handler : getHandlers()) {
+                handler.afterCompletion(completed, committed);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.repository.event;
+
+import java.util.List;
+
+/**
+ * {@link EntityChangeEventListener} 가 전달하는 엔티티 변경을 받는 빈
+ * <p>
+ * 핸들러는 {@link org.springframework.core.annotation.Order} 순서로 호출된다. 다른 핸들러가 관리하는 데이터(스냅샷, 사전)로
+ * 계산한 결과를 캐시하는 핸들러는 그 핸들러보다 뒤에 호출되어야 한다. 먼저 무효화하면 그 사이에 이전 데이터로 계산한 결과가 다시 캐시된다.
+ */
+public interface EntityChangeHandler {
+
+    /**
+     * flush 시점(Hibernate post-insert/update/delete)에 호출된다.
+     * 트랜잭션이 아직 끝나지 않았으므로 캐시 무효화처럼 여러 번 호출되어도 안전한 처리만 한다.
+     */
+    default void onFlush(EntityChange change) {
+    }
+
+    /**
+     * 변경이 일어난 트랜잭션이 끝난 뒤 호출된다. 트랜잭션 밖의 변경이면 flush 직후 바로 호출된다.
+     *
+     * @param committed 커밋되었으면 true, 롤백되었으면 false
+     */
+    default void afterCompletion(EntityChange change, boolean committed) {
+    }
+
+    /**
+     * 트랜잭션이 끝난 뒤 그 트랜잭션의 변경을 모두 모아서 한 번 호출된다. 기본 구현은 변경마다 위 메서드를 호출한다.
+     * 변경마다 처리하면 비싼 핸들러(캐시 전체를 훑는 무효화 등)는 이 메서드를 구현한다.
+     *
+     * @param changes 일어난 순서대로
+     */
+    default void afterCompletion(List<EntityChange> changes, boolean committed) {
+        for (EntityChange change : changes) {
+            afterCompletion(change, committed);
+        }
+    }
+}
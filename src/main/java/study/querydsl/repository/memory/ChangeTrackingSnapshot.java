@@ -0,0 +1,216 @@
+package study.querydsl.repository.memory;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeHandler;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * DB 를 한 번 읽어 만든 메모리 스냅샷을 커밋된 엔티티 변경으로 갱신한다.
+ * <p>
+ * enabled 이면 애플리케이션 시작 후 별도 스레드에서 스냅샷을 읽는다. 읽는 동안 들어온 변경은 모아 두었다가 다 읽은 뒤 적용한다.
+ * 스냅샷에 반영할 수 없는 변경(벌크 연산 등)이 오면 스냅샷을 버리고 다시 읽는다.
+ * 스냅샷이 준비되지 않았으면 {@link #read(Function)} 는 빈 Optional 을 돌려주고 호출하는 쪽이 DB 를 읽는다.
+ * 스냅샷으로 계산한 결과를 캐시하는 핸들러보다 먼저 변경을 반영한다.
+ *
+ * @param <S> 스냅샷 - 쓰기 잠금 안에서만 바뀌고 읽기 잠금 안에서 읽힌다.
+ */
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public abstract class ChangeTrackingSnapshot<S> implements EntityChangeHandler {
+
+    private final String name;
+    private final boolean enabled;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExecutorService loader;
+
+    /** 스냅샷을 읽는 작업은 한 번에 하나만 */
+    private final ReentrantLock loading = new ReentrantLock();
+    /** 아직 시작하지 않은 비동기 읽기가 있으면 true - 그동안의 요청은 그 읽기 하나로 합친다. */
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** null 이면 준비되지 않음 */
+    private S snapshot;
+    /** null 이 아니면 스냅샷을 읽는 중 - 그동안의 변경 */
+    private List<EntityChange> pending;
+
+    protected ChangeTrackingSnapshot(String name, boolean enabled, PlatformTransactionManager transactionManager) {
+        this.name = name;
+        this.enabled = enabled;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 읽기 전용 트랜잭션 안에서 DB 전체를 읽어 스냅샷을 만든다.
+     */
+    protected abstract S load();
+
+    /**
+     * @return 스냅샷에 반영할 수 없으면 false - 스냅샷을 버리고 다시 읽는다.
+     */
+    protected abstract boolean apply(S snapshot, EntityChange change);
+
+    protected abstract boolean accepts(EntityChange change);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (enabled) {
+            warmUpAsync();
+        }
+    }
+
+    public void warmUpAsync() {
+        if (!reloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        loader.execute(() -> {
+            reloadQueued.set(false);
+            rebuild();
+        });
+    }
+
+    public boolean isWarm() {
+        lock.readLock().lock();
+        try {
+            return snapshot != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 전체를 다시 읽는다. 읽는 동안에는 이전 스냅샷도 쓰지 않는다. 다른 스레드가 읽는 중이면 끝날 때까지 기다린 뒤 다시 읽는다.
+     */
+    public void rebuild() {
+        loading.lock();
+        try {
+            reload();
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    /**
+     * 스냅샷을 버린다. 다시 {@link #rebuild()} 하기 전까지 검색은 DB 로 간다.
+     */
+    public void discard() {
+        loading.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                snapshot = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            loading.unlock();
+        }
+    }
+
+    @Override
+    public void afterCompletion(EntityChange change, boolean committed) {
+        if (!committed || !accepts(change)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (pending != null) {
+                pending.add(change);
+            } else {
+                applyOrDiscard(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * 읽기 잠금 안에서 스냅샷을 읽는다.
+     *
+     * @return 스냅샷이 준비되지 않았으면 빈 Optional
+     */
+    protected <R> Optional<R> read(Function<S, R> reader) {
+        lock.readLock().lock();
+        try {
+            return snapshot == null ? Optional.empty() : Optional.ofNullable(reader.apply(snapshot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void reload() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            snapshot = null;
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        S loaded = null;
+        try {
+            loaded = readOnlyTransaction.execute(status -> load());
+        } catch (RuntimeException e) {
+            log.warn("Failed to load {} - falling back to the database", name, e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<EntityChange> changes = pending;
+                pending = null;
+                snapshot = loaded;
+                if (loaded != null) {
+                    changes.forEach(this::applyOrDiscard);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        if (loaded != null) {
+            log.info("Loaded {} in {} ms", name, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * 쓰기 잠금 안에서 호출된다.
+     */
+    private void applyOrDiscard(EntityChange change) {
+        if (snapshot == null) {
+            return;
+        }
+        if (!apply(snapshot, change)) {
+            log.debug("Discarding {} on {}", name, change);
+            snapshot = null;
+            warmUpAsync();
+        }
+    }
+}
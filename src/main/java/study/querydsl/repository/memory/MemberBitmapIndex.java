@@ -0,0 +1,113 @@
+package study.querydsl.repository.memory;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.cache.TeamIdCache;
+import study.querydsl.repository.event.EntityChange;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * teamName, ageGoe, ageLoe 조건의 회원 수를 비트맵({@link MemberBitmaps}) AND/cardinality 로 계산한다.
+ * <p>
+ * username 조건이 있으면 계산하지 않는다(빈 Optional) - 호출하는 쪽이 DB 로 count 한다.
+ * 팀 이름은 {@link TeamIdCache} 로 팀 id 로 바꾼다.
+ * member.bitmap-count.enabled 이면 애플리케이션 시작 후 전체 회원을 읽고, 이후에는 커밋된 Hibernate 변경 이벤트로 갱신한다.
+ */
+@Component
+public class MemberBitmapIndex extends ChangeTrackingSnapshot<MemberBitmaps> {
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamIdCache teamIdCache;
+    private final int fetchSize;
+
+    public MemberBitmapIndex(EntityManager em,
+                             PlatformTransactionManager transactionManager,
+                             TeamIdCache teamIdCache,
+                             @Value("${member.bitmap-count.enabled:false}") boolean enabled,
+                             @Value("${member.memory-search.fetch-size:1000}") int fetchSize) {
+        super("member-bitmap-index", enabled, transactionManager);
+        this.queryFactory = new JPAQueryFactory(em);
+        this.teamIdCache = teamIdCache;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return 비트맵으로 계산할 수 없으면(준비 전이거나 username 조건, 사전에 없는 팀 이름) 빈 Optional
+     */
+    public Optional<Long> count(MemberSearchCondition condition) {
+        if (hasText(condition.getUsername())) {
+            return Optional.empty();
+        }
+        List<Long> teamIds = hasText(condition.getTeamName()) ? teamIdCache.findIds(condition.getTeamName()) : null;
+        if (teamIds != null && teamIds.isEmpty()) {
+            // 사전에 없는 팀 - 비트맵에 없는 회원의 팀일 수 있다.
+            return Optional.empty();
+        }
+        return read(bitmaps -> bitmaps.count(teamIds, condition.getAgeGoe(), condition.getAgeLoe()));
+    }
+
+    @Override
+    protected boolean accepts(EntityChange change) {
+        return change.isFor(Member.class, Team.class);
+    }
+
+    @Override
+    protected boolean apply(MemberBitmaps bitmaps, EntityChange change) {
+        if (change.getType() == EntityChange.Type.BULK) {
+            return false;
+        }
+        long id = ((Number) change.getId()).longValue();
+        if (change.isFor(Team.class)) {
+            // 팀 이름은 TeamIdCache 가 따라간다. 삭제된 팀의 회원은 먼저 삭제되었거나 팀이 바뀌었다.
+            if (change.getType() == EntityChange.Type.DELETE) {
+                bitmaps.removeTeam(id);
+            }
+            return true;
+        }
+        if (!MemberBitmaps.fits(id)) {
+            return false;
+        }
+        bitmaps.remove(id);
+        if (change.getType() != EntityChange.Type.DELETE) {
+            Member changed = (Member) change.getEntity();
+            // 프록시의 getId() 는 초기화하지 않는다.
+            Long teamId = changed.getTeam() == null ? null : changed.getTeam().getId();
+            bitmaps.add(id, teamId, changed.getAge());
+        }
+        return true;
+    }
+
+    @Override
+    protected MemberBitmaps load() {
+        MemberBitmaps loaded = new MemberBitmaps();
+        try (Stream<Tuple> rows = queryFactory
+                .select(member.id, member.team.id, member.age)
+                .from(member)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .stream()) {
+            rows.forEach(row -> {
+                long id = row.get(member.id);
+                if (!MemberBitmaps.fits(id)) {
+                    throw new IllegalStateException("Member id " + id + " does not fit in a bitmap");
+                }
+                loaded.add(id, row.get(member.team.id), row.get(member.age));
+            });
+        }
+        return loaded;
+    }
+}
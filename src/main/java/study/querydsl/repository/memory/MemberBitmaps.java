@@ -0,0 +1,117 @@
+package study.querydsl.repository.memory;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * 회원 id 비트맵 - 팀 id 별, 나이 별 하나씩
+ * <p>
+ * 나이는 값 범위가 작으므로 나이 값 하나를 구간 하나로 둔다. 범위 조건은 구간 비트맵들의 OR 로 정확히 계산된다.
+ * RoaringBitmap 은 int 를 담으므로 id 가 int 범위를 넘으면 반영할 수 없다.
+ * 동기화하지 않는다 - {@link MemberBitmapIndex} 가 잠금을 잡고 사용한다.
+ */
+class MemberBitmaps {
+
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<Long, RoaringBitmap> byTeam = new HashMap<>();
+    private final NavigableMap<Integer, RoaringBitmap> byAge = new TreeMap<>();
+
+    static boolean fits(long id) {
+        return id >= 0 && id <= Integer.MAX_VALUE;
+    }
+
+    void add(long id, Long teamId, int age) {
+        int position = (int) id;
+        all.add(position);
+        if (teamId != null) {
+            byTeam.computeIfAbsent(teamId, key -> new RoaringBitmap()).add(position);
+        }
+        byAge.computeIfAbsent(age, key -> new RoaringBitmap()).add(position);
+    }
+
+    /**
+     * 이전 팀/나이를 따로 기억하지 않으므로 모든 비트맵에서 지운다. 팀 수와 나이 종류 수에 비례한다.
+     */
+    void remove(long id) {
+        int position = (int) id;
+        if (!all.checkedRemove(position)) {
+            return;
+        }
+        removeFrom(byTeam.values(), position);
+        removeFrom(byAge.values(), position);
+    }
+
+    void removeTeam(long teamId) {
+        byTeam.remove(teamId);
+    }
+
+    /**
+     * @param teamIds null 이면 팀 조건 없음
+     * @param ageGoe  null 이면 하한 없음
+     * @param ageLoe  null 이면 상한 없음
+     */
+    long count(Collection<Long> teamIds, Integer ageGoe, Integer ageLoe) {
+        RoaringBitmap teams = null;
+        if (teamIds != null) {
+            List<RoaringBitmap> bitmaps = new ArrayList<>(teamIds.size());
+            for (Long teamId : teamIds) {
+                RoaringBitmap bitmap = byTeam.get(teamId);
+                if (bitmap != null) {
+                    bitmaps.add(bitmap);
+                }
+            }
+            if (bitmaps.isEmpty()) {
+                return 0;
+            }
+            teams = bitmaps.size() == 1 ? bitmaps.get(0) : FastAggregation.or(bitmaps.iterator());
+        }
+
+        RoaringBitmap ages = null;
+        if (ageGoe != null || ageLoe != null) {
+            if (ageGoe != null && ageLoe != null && ageGoe > ageLoe) {
+                return 0;
+            }
+            NavigableMap<Integer, RoaringBitmap> range = byAge;
+            if (ageGoe != null) {
+                range = range.tailMap(ageGoe, true);
+            }
+            if (ageLoe != null) {
+                range = range.headMap(ageLoe, true);
+            }
+            if (range.isEmpty()) {
+                return 0;
+            }
+            ages = range.size() == 1 ? range.firstEntry().getValue() : FastAggregation.or(range.values().iterator());
+        }
+
+        if (teams != null && ages != null) {
+            return RoaringBitmap.andCardinality(teams, ages);
+        }
+        if (teams != null) {
+            return teams.getLongCardinality();
+        }
+        if (ages != null) {
+            return ages.getLongCardinality();
+        }
+        return all.getLongCardinality();
+    }
+
+    private static void removeFrom(Collection<RoaringBitmap> bitmaps, int position) {
+        Iterator<RoaringBitmap> iterator = bitmaps.iterator();
+        while (iterator.hasNext()) {
+            RoaringBitmap bitmap = iterator.next();
+            if (bitmap.checkedRemove(position) && bitmap.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydsl.repository.memory;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.EntityChange;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 회원 검색을 DB 대신 메모리의 컬럼 스냅샷({@link MemberColumns})으로 처리한다.
+ * <p>
+ * member.memory-search.enabled 이면 애플리케이션 시작 후 전체 회원을 읽고, 이후에는 커밋된 Hibernate 변경 이벤트로 갱신한다.
+ * 스냅샷이 준비되지 않았으면 {@link #search(MemberSearchCondition)} 는 빈 Optional 을 돌려주고 호출하는 쪽이 DB 를 읽는다.
+ */
+@Component
+public class MemberColumnStore extends ChangeTrackingSnapshot<MemberColumns> {
+
+    private final JPAQueryFactory queryFactory;
+    private final int fetchSize;
+
+    public MemberColumnStore(EntityManager em,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${member.memory-search.enabled:false}") boolean enabled,
+                             @Value("${member.memory-search.fetch-size:1000}") int fetchSize) {
+        super("member-column-store", enabled, transactionManager);
+        this.queryFactory = new JPAQueryFactory(em);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return 스냅샷이 준비되지 않았으면 빈 Optional
+     */
+    public Optional<List<MemberTeamDto>> search(MemberSearchCondition condition) {
+        return read(columns -> columns.search(condition));
+    }
+
+    @Override
+    protected boolean accepts(EntityChange change) {
+        return change.isFor(Member.class, Team.class);
+    }
+
+    @Override
+    protected boolean apply(MemberColumns columns, EntityChange change) {
+        if (change.getType() == EntityChange.Type.BULK) {
+            return false;
+        }
+        long id = ((Number) change.getId()).longValue();
+        if (change.isFor(Team.class)) {
+            if (change.getType() == EntityChange.Type.DELETE) {
+                columns.removeTeam(id);
+            } else {
+                columns.putTeam(id, ((Team) change.getEntity()).getName());
+            }
+            return true;
+        }
+
+        if (change.getType() == EntityChange.Type.DELETE) {
+            columns.remove(id);
+            return true;
+        }
+        Member changed = (Member) change.getEntity();
+        Team changedTeam = changed.getTeam();
+        Long teamId = null;
+        if (changedTeam != null) {
+            // 프록시의 getId() 는 초기화하지 않는다.
+            teamId = changedTeam.getId();
+            if (Hibernate.isInitialized(changedTeam)) {
+                columns.putTeam(teamId, changedTeam.getName());
+            }
+        }
+        if (!columns.hasTeam(teamId)) {
+            return false;
+        }
+        columns.upsert(id, changed.getUsername(), changed.getAge(), teamId);
+        return true;
+    }
+
+    @Override
+    protected MemberColumns load() {
+        Long memberCount = queryFactory.select(member.count()).from(member).fetchOne();
+        MemberColumns loaded = new MemberColumns(memberCount == null ? 0 : memberCount.intValue());
+
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+            loaded.putTeam(row.get(team.id), row.get(team.name));
+        }
+
+        try (Stream<Tuple> rows = queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member)
+                .orderBy(member.id.asc())
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .stream()) {
+            rows.forEach(row -> {
+                Long teamId = row.get(member.team.id);
+                if (!loaded.hasTeam(teamId)) {
+                    // 팀 목록을 읽은 뒤 추가된 팀 - 이름은 모아 둔 변경을 적용할 때 채워진다.
+                    loaded.putTeam(teamId, null);
+                }
+                loaded.upsert(row.get(member.id), row.get(member.username), row.get(member.age), teamId);
+            });
+        }
+        return loaded;
+    }
+}
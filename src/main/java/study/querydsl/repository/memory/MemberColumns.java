@@ -0,0 +1,177 @@
+package study.querydsl.repository.memory;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 컬럼 저장소 - id 오름차순으로 정렬된 기본형 배열
+ * <p>
+ * 팀은 사전(team code -> team id, team name)으로 인코딩해 회원마다 int 코드만 가진다. 팀이 없으면 -1.
+ * 회원 이름은 intern 해서 같은 이름이 한 인스턴스를 공유한다.
+ * 동기화하지 않는다 - {@link MemberColumnStore} 가 잠금을 잡고 사용한다.
+ */
+class MemberColumns {
+
+    private static final int NO_TEAM = -1;
+
+    private long[] ids;
+    private int[] ages;
+    private int[] teamCodes;
+    private String[] usernames;
+    private int size;
+
+    private long[] teamIds = new long[16];
+    private String[] teamNames = new String[16];
+    private int teamCount;
+    private final Map<Long, Integer> teamCodeById = new HashMap<>();
+
+    MemberColumns(int capacity) {
+        int initial = Math.max(capacity, 16);
+        ids = new long[initial];
+        ages = new int[initial];
+        teamCodes = new int[initial];
+        usernames = new String[initial];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean hasTeam(Long teamId) {
+        return teamId == null || teamCodeById.containsKey(teamId);
+    }
+
+    void putTeam(long teamId, String name) {
+        Integer code = teamCodeById.get(teamId);
+        if (code == null) {
+            if (teamCount == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, teamCount * 2);
+                teamNames = Arrays.copyOf(teamNames, teamCount * 2);
+            }
+            code = teamCount++;
+            teamIds[code] = teamId;
+            teamCodeById.put(teamId, code);
+        }
+        teamNames[code] = name;
+    }
+
+    void removeTeam(long teamId) {
+        Integer code = teamCodeById.get(teamId);
+        if (code != null) {
+            // 코드는 재사용하지 않는다. 이 팀을 가리키는 회원은 먼저 삭제되었거나 팀이 바뀌었다.
+            teamNames[code] = null;
+        }
+    }
+
+    /**
+     * id 가 있으면 갱신하고 없으면 정렬 위치에 끼워 넣는다. 대부분 마지막에 추가된다.
+     *
+     * @param teamId 사전에 있어야 한다 - {@link #hasTeam(Long)}
+     */
+    void upsert(long id, String username, int age, Long teamId) {
+        int teamCode = teamId == null ? NO_TEAM : teamCodeById.get(teamId);
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            index = -index - 1;
+            if (size == ids.length) {
+                grow();
+            }
+            int moved = size - index;
+            if (moved > 0) {
+                System.arraycopy(ids, index, ids, index + 1, moved);
+                System.arraycopy(ages, index, ages, index + 1, moved);
+                System.arraycopy(teamCodes, index, teamCodes, index + 1, moved);
+                System.arraycopy(usernames, index, usernames, index + 1, moved);
+            }
+            size++;
+        }
+        ids[index] = id;
+        ages[index] = age;
+        teamCodes[index] = teamCode;
+        usernames[index] = username == null ? null : username.intern();
+    }
+
+    void remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(ids, index + 1, ids, index, moved);
+            System.arraycopy(ages, index + 1, ages, index, moved);
+            System.arraycopy(teamCodes, index + 1, teamCodes, index, moved);
+            System.arraycopy(usernames, index + 1, usernames, index, moved);
+        }
+        size--;
+        usernames[size] = null;
+    }
+
+    /**
+     * MemberRepositoryImpl.search 와 같은 조건 해석 - 빈 문자열과 null 조건은 무시한다.
+     */
+    List<MemberTeamDto> search(MemberSearchCondition condition) {
+        int minAge = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+        int maxAge = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+        String username = hasText(condition.getUsername()) ? condition.getUsername() : null;
+
+        boolean[] teamMask = null;
+        if (hasText(condition.getTeamName())) {
+            teamMask = new boolean[teamCount];
+            boolean any = false;
+            for (int code = 0; code < teamCount; code++) {
+                if (condition.getTeamName().equals(teamNames[code])) {
+                    teamMask[code] = true;
+                    any = true;
+                }
+            }
+            if (!any) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<MemberTeamDto> result = new ArrayList<>();
+        long[] ids = this.ids;
+        int[] ages = this.ages;
+        int[] teamCodes = this.teamCodes;
+        String[] usernames = this.usernames;
+        for (int i = 0, n = size; i < n; i++) {
+            int age = ages[i];
+            if (age < minAge || age > maxAge) {
+                continue;
+            }
+            int teamCode = teamCodes[i];
+            if (teamMask != null && (teamCode == NO_TEAM || !teamMask[teamCode])) {
+                continue;
+            }
+            if (username != null && !username.equals(usernames[i])) {
+                continue;
+            }
+            result.add(toDto(i));
+        }
+        return result;
+    }
+
+    private MemberTeamDto toDto(int i) {
+        int teamCode = teamCodes[i];
+        Long teamId = teamCode == NO_TEAM ? null : teamIds[teamCode];
+        String teamName = teamCode == NO_TEAM ? null : teamNames[teamCode];
+        return new MemberTeamDto(ids[i], usernames[i], ages[i], teamId, teamName);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        teamCodes = Arrays.copyOf(teamCodes, capacity);
+        usernames = Arrays.copyOf(usernames, capacity);
+    }
+}
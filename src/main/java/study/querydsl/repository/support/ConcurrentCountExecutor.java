@@ -0,0 +1,141 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * count 쿼리를 별도의 읽기 전용 트랜잭션(별도 EntityManager, 별도 커넥션)에서 실행하는 제한된 크기의 실행기
+ * <p>
+ * 호출한 쪽의 영속성 컨텍스트와 트랜잭션을 공유하지 않으므로 커밋되지 않은 변경은 count 에 반영되지 않는다.
+ * 읽기 전용 트랜잭션이므로 replica 라우팅이 켜져 있으면 replica 에서 실행된다.
+ * 큐가 가득 차면 호출한 스레드에서 직접 실행한다.
+ * <p>
+ * 돌려준 Future 를 취소하면 실행 중인 count 쿼리도 JDBC Statement.cancel() 로 취소한다.
+ * 취소가 쿼리 시작과 엇갈려 놓치는 경우를 위해 count 쿼리에는 타임아웃(member.count-query.timeout)을 건다.
+ */
+@Component
+public class ConcurrentCountExecutor {
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    public ConcurrentCountExecutor(EntityManager em,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${member.count-query.pool-size:4}") int poolSize,
+                                   @Value("${member.count-query.queue-capacity:64}") int queueCapacity,
+                                   @Value("${member.count-query.timeout:30s}") Duration timeout) {
+        Assert.isTrue(!timeout.isNegative(), "Timeout must not be negative!");
+        this.em = em;
+        this.timeout = timeout;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // 큐가 가득 차서 호출한 스레드에서 실행되는 경우에도 호출한 쪽 트랜잭션과 분리한다.
+        this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "count-query-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public Future<Long> submit(Function<JPAQueryFactory, JPAQuery<Long>> countQuery) {
+        AtomicReference<Session> running = new AtomicReference<>();
+        CountTask task = new CountTask(() -> count(countQuery, running), running);
+        executor.execute(task);
+        return task;
+    }
+
+    public long await(Future<Long> count) {
+        try {
+            return count.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for count query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Count query failed", e.getCause());
+        }
+    }
+
+    private Long count(Function<JPAQueryFactory, JPAQuery<Long>> countQuery, AtomicReference<Session> running) {
+        return readOnlyTransaction.execute(status -> {
+            JPAQuery<Long> query = countQuery.apply(new JPAQueryFactory(em));
+            if (!timeout.isZero()) {
+                query.setHint(QueryHints.SPEC_HINT_TIMEOUT, timeout.toMillis());
+            }
+            running.set(em.unwrap(Session.class));
+            try {
+                return query.fetchOne();
+            } finally {
+                running.set(null);
+            }
+        });
+    }
+
+    /**
+     * 취소되면 실행 중인 count 쿼리를 Session.cancelQuery() 로 취소하는 작업
+     * <p>
+     * JDBC I/O 중인 스레드를 인터럽트하면 풀의 커넥션이 닫힐 수 있으므로 스레드는 인터럽트하지 않는다.
+     * 실행을 기다리던 작업은 FutureTask 가 실행하지 않는다.
+     */
+    private static class CountTask extends FutureTask<Long> {
+
+        private final AtomicReference<Session> running;
+
+        CountTask(Callable<Long> count, AtomicReference<Session> running) {
+            super(count);
+            this.running = running;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(false);
+            Session session = running.get();
+            if (cancelled && session != null) {
+                try {
+                    session.cancelQuery();
+                } catch (HibernateException e) {
+                    // 그 사이 쿼리가 끝나고 세션이 닫힌 경우
+                }
+            }
+            return cancelled;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,31 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 전체 건수 추정값
+ * 정확한 값이 아니면 errorBound 는 95% 신뢰구간의 반폭이다 - 실제 값은 대부분 value ± errorBound 안에 있다.
+ */
+@Getter
+@ToString
+public class CountEstimate {
+
+    private final long value;
+    private final boolean exact;
+    private final long errorBound;
+
+    private CountEstimate(long value, boolean exact, long errorBound) {
+        this.value = value;
+        this.exact = exact;
+        this.errorBound = errorBound;
+    }
+
+    public static CountEstimate exact(long value) {
+        return new CountEstimate(value, true, 0);
+    }
+
+    public static CountEstimate approximate(long value, long errorBound) {
+        return new CountEstimate(value, false, errorBound);
+    }
+}
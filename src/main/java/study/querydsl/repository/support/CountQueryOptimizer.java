@@ -0,0 +1,220 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinFlag;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.MapExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * content 쿼리로부터 count 쿼리를 만든다.
+ * <p>
+ * <ul>
+ *     <li>select 절은 {@code count(루트 엔티티)} 로 바꾼다. (SQL 에서는 count(id))</li>
+ *     <li>distinct 쿼리는 select 절의 식을 {@code count(distinct 식)} 으로 센다. SQL 과 같이 null 은 세지 않는다.
+ *     여러 식을 select 하는 distinct 쿼리는 JPQL 로 셀 수 없으므로 지원하지 않는다.</li>
+ *     <li>order by, offset, limit 은 제거한다.</li>
+ *     <li>where 절이나 남아 있는 다른 조인에서 사용하지 않는 to-one 연관관계의 left join 은 제거한다.
+ *     left join 한 to-one 연관관계는 행 수를 바꿀 수 없기 때문이다. 연관관계가 아닌 엔티티 조인은 유지한다.</li>
+ *     <li>fetch join 은 count 쿼리에서 의미가 없으므로 일반 조인으로 바꾼다.</li>
+ * </ul>
+ * group by, having 이 있는 쿼리는 그룹 수를 세야 하므로 지원하지 않는다.
+ */
+public final class CountQueryOptimizer {
+
+    private CountQueryOptimizer() {
+    }
+
+    public static JPAQuery<Long> countQuery(JPAQueryFactory queryFactory, JPAQuery<?> contentQuery) {
+        QueryMetadata source = contentQuery.getMetadata();
+        Assert.isTrue(source.getGroupBy().isEmpty(), "Count query optimization does not support group by!");
+        Assert.isNull(source.getHaving(), "Count query optimization does not support having!");
+        List<JoinExpression> joins = source.getJoins();
+        Assert.notEmpty(joins, "Content query must have a from clause!");
+
+        Expression<?> counted = countedExpression(source, aliasOf(joins.get(0).getTarget()));
+        Ops.AggOps count = source.isDistinct() ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG;
+        JPAQuery<Long> countQuery = queryFactory.select(Expressions.numberOperation(Long.class, count, counted));
+
+        QueryMetadata target = countQuery.getMetadata();
+        Set<JoinExpression> required = requiredJoins(source, counted);
+        for (JoinExpression join : joins) {
+            if (!required.contains(join)) {
+                continue;
+            }
+            target.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                target.addJoinCondition(join.getCondition());
+            }
+            for (JoinFlag flag : join.getFlags()) {
+                if (!flag.equals(JPAQueryMixin.FETCH) && !flag.equals(JPAQueryMixin.FETCH_ALL_PROPERTIES)) {
+                    target.addJoinFlag(flag);
+                }
+            }
+        }
+        target.addWhere(source.getWhere());
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            setParam(target, param.getKey(), param.getValue());
+        }
+        return countQuery;
+    }
+
+    /**
+     * distinct 가 아니면 루트 엔티티, distinct 이면 select 절의 식
+     */
+    private static Expression<?> countedExpression(QueryMetadata metadata, Expression<?> root) {
+        Expression<?> projection = metadata.getProjection();
+        if (!metadata.isDistinct() || projection == null) {
+            return root;
+        }
+        Assert.isTrue(!(projection instanceof FactoryExpression),
+                "Count query optimization does not support distinct over multiple expressions!");
+        return projection;
+    }
+
+    /**
+     * 뒤쪽 조인부터 거꾸로 보면서, 제거할 수 없는 조인이 참조하는 별칭을 누적한다.
+     */
+    private static Set<JoinExpression> requiredJoins(QueryMetadata metadata, Expression<?> counted) {
+        Set<Path<?>> referenced = new HashSet<>();
+        collectRoots(metadata.getWhere(), referenced);
+        collectRoots(counted, referenced);
+
+        List<JoinExpression> joins = metadata.getJoins();
+        Set<JoinExpression> required = new HashSet<>();
+        Deque<JoinExpression> reversed = new ArrayDeque<>();
+        joins.forEach(reversed::push);
+        for (JoinExpression join : reversed) {
+            if (join == joins.get(0) || !isPrunable(join) || referenced.contains(aliasOf(join.getTarget()))) {
+                required.add(join);
+                collectRoots(join.getTarget(), referenced);
+                collectRoots(join.getCondition(), referenced);
+            }
+        }
+        return required;
+    }
+
+    /**
+     * {@code member.team} 처럼 부모가 있는 단일 값 연관관계의 left join 만 제거할 수 있다.
+     * {@code leftJoin(team).on(...)} 같은 루트 엔티티 조인(theta join)은 on 조건에 맞는 행마다 늘어날 수 있다.
+     */
+    private static boolean isPrunable(JoinExpression join) {
+        if (join.getType() != JoinType.LEFTJOIN) {
+            return false;
+        }
+        Expression<?> association = associationOf(join.getTarget());
+        return association instanceof EntityPath
+                && ((EntityPath<?>) association).getMetadata().getParent() != null
+                && !(association instanceof CollectionExpression)
+                && !(association instanceof MapExpression);
+    }
+
+    private static Expression<?> associationOf(Expression<?> joinTarget) {
+        if (joinTarget instanceof Operation && ((Operation<?>) joinTarget).getOperator() == Ops.ALIAS) {
+            return ((Operation<?>) joinTarget).getArg(0);
+        }
+        return joinTarget;
+    }
+
+    private static Expression<?> aliasOf(Expression<?> joinTarget) {
+        if (joinTarget instanceof Operation && ((Operation<?>) joinTarget).getOperator() == Ops.ALIAS) {
+            return ((Operation<?>) joinTarget).getArg(1);
+        }
+        return joinTarget;
+    }
+
+    private static void collectRoots(Expression<?> expression, Set<Path<?>> roots) {
+        if (expression != null) {
+            expression.accept(RootCollector.INSTANCE, roots);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void setParam(QueryMetadata metadata, ParamExpression<T> param, Object value) {
+        metadata.setParam(param, (T) value);
+    }
+
+    /**
+     * 식에서 사용된 경로들의 루트(별칭)를 모은다. 서브쿼리 안에서 바깥 별칭을 참조하는 경우도 포함한다.
+     */
+    private static class RootCollector implements Visitor<Void, Set<Path<?>>> {
+
+        static final RootCollector INSTANCE = new RootCollector();
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+            expr.getArgs().forEach(arg -> collectRoots(arg, roots));
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+            expr.getArgs().forEach(arg -> collectRoots(arg, roots));
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Path<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+            QueryMetadata metadata = expr.getMetadata();
+            collectRoots(metadata.getProjection(), roots);
+            collectRoots(metadata.getWhere(), roots);
+            collectRoots(metadata.getHaving(), roots);
+            metadata.getGroupBy().forEach(group -> collectRoots(group, roots));
+            for (JoinExpression join : metadata.getJoins()) {
+                collectRoots(join.getTarget(), roots);
+                collectRoots(join.getCondition(), roots);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    collectRoots((Expression<?>) arg, roots);
+                }
+            }
+            return null;
+        }
+    }
+}
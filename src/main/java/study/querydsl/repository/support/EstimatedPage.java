@@ -0,0 +1,52 @@
+package study.querydsl.repository.support;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * total 이 추정값일 수 있는 페이지
+ * approximate 가 true 이면 totalElements 는 추정값이고, totalErrorBound 는 95% 신뢰구간의 반폭이다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean approximate;
+    private final long totalErrorBound;
+
+    private EstimatedPage(List<T> content, Pageable pageable, CountEstimate total) {
+        super(content, pageable, total.getValue());
+        this.approximate = !total.isExact();
+        this.totalErrorBound = total.getErrorBound();
+    }
+
+    /**
+     * PageableExecutionUtils 와 같은 규칙으로 content 만으로 total 을 알 수 있으면 total 을 구하지 않는다.
+     */
+    public static <T> EstimatedPage<T> of(List<T> content, Pageable pageable, Supplier<CountEstimate> total) {
+        if (pageable.isUnpaged() || pageable.getOffset() == 0) {
+            if (pageable.isUnpaged() || pageable.getPageSize() > content.size()) {
+                return new EstimatedPage<>(content, pageable, CountEstimate.exact(content.size()));
+            }
+            return new EstimatedPage<>(content, pageable, total.get());
+        }
+        if (content.size() != 0 && pageable.getPageSize() > content.size()) {
+            return new EstimatedPage<>(content, pageable, CountEstimate.exact(pageable.getOffset() + content.size()));
+        }
+        return new EstimatedPage<>(content, pageable, total.get());
+    }
+
+    public static <T> EstimatedPage<T> exact(Page<T> page) {
+        return new EstimatedPage<>(page.getContent(), page.getPageable(), CountEstimate.exact(page.getTotalElements()));
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public long getTotalErrorBound() {
+        return totalErrorBound;
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset(seek) 페이징 커서
+ * <p>
+ * 마지막으로 읽은 행의 (정렬 키 값, id) 를 담는다.
+ * 클라이언트에는 {@link #encode()} 로 만든 불투명 토큰만 노출하고, 내부 형식은 {@code sortKey|value|id} 이다.
+ */
+@Getter
+@EqualsAndHashCode
+public class KeysetCursor {
+
+    private static final String DELIMITER = "|";
+
+    private final String sortKey;
+    private final String value;
+    private final Long id;
+
+    public KeysetCursor(String sortKey, String value, Long id) {
+        Assert.hasText(sortKey, "Sort key must not be empty!");
+        Assert.notNull(value, "Cursor value must not be null!");
+        Assert.notNull(id, "Cursor id must not be null!");
+        this.sortKey = sortKey;
+        this.value = value;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = sortKey + DELIMITER + value + DELIMITER + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        Assert.hasText(token, "Cursor must not be empty!");
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+
+        // value 에 구분자가 들어 있을 수 있으므로 앞(sortKey)과 뒤(id)를 기준으로 자른다.
+        int first = raw.indexOf(DELIMITER);
+        int last = raw.lastIndexOf(DELIMITER);
+        if (first < 0 || first == last) {
+            throw new IllegalArgumentException("Invalid cursor: " + token);
+        }
+        try {
+            return new KeysetCursor(raw.substring(0, first),
+                    raw.substring(first + 1, last),
+                    Long.valueOf(raw.substring(last + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, e);
+        }
+    }
+}
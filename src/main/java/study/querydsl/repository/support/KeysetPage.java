@@ -0,0 +1,26 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Keyset(seek) 페이징 결과
+ * <p>
+ * total count 를 계산하지 않는 대신 다음 페이지를 조회할 수 있는 {@code nextCursor} 를 돌려준다.
+ */
+@Getter
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor;
+
+    public KeysetPage(List<T> content, int size, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = nextCursor != null;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -3,7 +3,9 @@ import com.querydsl.core.types.EntityPath;import com.querydsl.core.types.Express
 import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
@@ -13,10 +15,15 @@ import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
+import study.querydsl.repository.support.statement.RepositoryCall;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.function.Supplier;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
  *
@@ -30,6 +37,9 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private ConcurrentCountExecutor countExecutor;
+    private int readFetchSize = 500;
+    private Duration readTimeout = Duration.ZERO;
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass; }
@@ -45,6 +55,21 @@ public abstract class Querydsl4RepositorySupport {
                 PathBuilder<>(path.getType(), path.getMetadata()));
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
+    @Autowired(required = false)
+    public void setCountExecutor(ConcurrentCountExecutor countExecutor) {
+        this.countExecutor = countExecutor;
+    }
+    /**
+     * 읽기 전용 쿼리(readSelect, readSelectFrom, applyReadPagination)의 JDBC fetch size 와 타임아웃. 타임아웃 0 은 제한 없음
+     */
+    @Autowired
+    public void setReadQueryOptions(@Value("${member.read-query.fetch-size:500}") int fetchSize,
+                                    @Value("${member.read-query.timeout:0s}") Duration timeout) {
+        Assert.isTrue(fetchSize > 0, "Fetch size must be positive!");
+        Assert.isTrue(!timeout.isNegative(), "Timeout must not be negative!");
+        this.readFetchSize = fetchSize;
+        this.readTimeout = timeout;
+    }
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
@@ -65,20 +90,109 @@ public abstract class Querydsl4RepositorySupport {
     } protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
         return getQueryFactory().selectFrom(from);
     }
+    /**
+     * 읽기 전용 select - 조회한 엔티티는 스냅샷을 만들지 않아 dirty checking 대상이 아니고,
+     * 쿼리 실행 전에 영속성 컨텍스트를 flush 하지 않는다(FlushModeType.COMMIT).
+     * 같은 트랜잭션에서 아직 flush 되지 않은 변경은 결과에 보이지 않을 수 있다.
+     */
+    protected <T> JPAQuery<T> readSelect(Expression<T> expr) {
+        return readOnly(select(expr));
+    }
+    protected <T> JPAQuery<T> readSelectFrom(EntityPath<T> from) {
+        return readOnly(selectFrom(from));
+    }
+    /**
+     * 이미 만든 쿼리에 읽기 전용 힌트, flush 모드, fetch size, 타임아웃을 적용한다.
+     */
+    protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+        query.setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, readFetchSize)
+                .setFlushMode(FlushModeType.COMMIT);
+        if (!readTimeout.isZero()) {
+            query.setHint(QueryHints.SPEC_HINT_TIMEOUT, readTimeout.toMillis());
+        }
+        return query;
+    }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
+        JPAQuery<Long> countQuery = CountQueryOptimizer.countQuery(getQueryFactory(), jpaQuery);
+        List<T> content = fetchContent(pageable, jpaQuery);
         return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+                () -> fetchCount(countQuery::fetchOne));
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery,
                                           Function<JPAQueryFactory, JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
-        JPAQuery countResult = countQuery.apply(getQueryFactory());
+        List<T> content = fetchContent(pageable, jpaContentQuery);
+        JPAQuery<Long> countResult = CountQueryOptimizer.countQuery(getQueryFactory(),
+                countQuery.apply(getQueryFactory()));
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> fetchCount(countResult::fetchOne));
+    }
+    /**
+     * {@link #readOnly(JPAQuery)} 를 적용한 content, count 쿼리로 페이징한다.
+     */
+    protected <T> Page<T> applyReadPagination(Pageable pageable,
+                                              Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        JPAQuery jpaQuery = readOnly(contentQuery.apply(getQueryFactory()));
+        JPAQuery<Long> countQuery = readOnly(CountQueryOptimizer.countQuery(getQueryFactory(), jpaQuery));
+        List<T> content = fetchContent(pageable, jpaQuery);
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> fetchCount(countQuery::fetchOne));
+    }
+    protected <T> Page<T> applyReadPagination(Pageable pageable,
+                                              Function<JPAQueryFactory, JPAQuery> contentQuery,
+                                              Function<JPAQueryFactory, JPAQuery> countQuery) {
+        JPAQuery jpaContentQuery = readOnly(contentQuery.apply(getQueryFactory()));
+        List<T> content = fetchContent(pageable, jpaContentQuery);
+        JPAQuery<Long> countResult = readOnly(CountQueryOptimizer.countQuery(getQueryFactory(),
+                countQuery.apply(getQueryFactory())));
         return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+                () -> fetchCount(countResult::fetchOne));
+    }
+    /**
+     * count 쿼리를 별도 커넥션에서 content 쿼리와 동시에 실행한다.
+     * count 쿼리는 content 쿼리로부터 {@link CountQueryOptimizer} 로 만든다.
+     */
+    protected <T> Page<T> applyPaginationConcurrently(Pageable pageable,
+                                                      Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        return applyPaginationConcurrently(pageable, contentQuery, contentQuery);
+    }
+    /**
+     * count 쿼리를 별도 커넥션에서 content 쿼리와 동시에 실행한다.
+     * count 가 필요 없는 경우(PageableExecutionUtils 의 생략 규칙)에는 결과를 기다리지 않고 실행 중인 count 쿼리를 취소한다.
+     * 별도 커넥션을 사용하므로 현재 트랜잭션의 커밋되지 않은 변경은 count 에 반영되지 않는다.
+     */
+    protected <T> Page<T> applyPaginationConcurrently(Pageable pageable,
+                                                      Function<JPAQueryFactory, JPAQuery> contentQuery,
+                                                      Function<JPAQueryFactory, JPAQuery> countQuery) {
+        if (countExecutor == null || pageable.isUnpaged()) {
+            return applyPagination(pageable, contentQuery, countQuery);
+        }
+        Future<Long> count = countExecutor.submit(queryFactory ->
+                CountQueryOptimizer.countQuery(queryFactory, countQuery.apply(queryFactory)));
+        try {
+            JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+            List<T> content = fetchContent(pageable, jpaContentQuery);
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> fetchCount(() -> countExecutor.await(count)));
+        } finally {
+            count.cancel(true);
+        }
+    }
+    /**
+     * content 조회 - 리포지토리 호출 메트릭에 "content" 구간으로 기록된다.
+     */
+    private <T> List<T> fetchContent(Pageable pageable, JPAQuery jpaQuery) {
+        return RepositoryCall.phase("content", () -> getQuerydsl().applyPagination(pageable, jpaQuery).fetch());
+    }
+    /**
+     * count 조회 - 리포지토리 호출 메트릭에 "count" 구간으로 기록된다.
+     * 동시 실행인 경우 결과를 기다린 시간이다.
+     */
+    private Long fetchCount(Supplier<Long> count) {
+        return RepositoryCall.phase("count", count);
     }
 }
\ No newline at end of file
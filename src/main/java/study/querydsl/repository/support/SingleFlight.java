@@ -0,0 +1,98 @@
+package study.querydsl.repository.support;
+
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 같은 키로 동시에 들어온 호출을 하나의 실행으로 합친다(single flight).
+ * <p>
+ * 먼저 들어온 호출이 실행하고, 실행 중에 들어온 같은 키의 호출은 그 결과(또는 예외)를 함께 받는다.
+ * 기다리는 시간은 maxWait 으로 제한하며, 넘으면 기다리던 호출이 직접 실행한다.
+ * 결과 객체는 여러 스레드가 공유하므로 영속성 컨텍스트에 묶인 엔티티가 아닌 DTO 처럼 불변으로 다룰 값만 합쳐야 한다.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitNanos;
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    public SingleFlight(Duration maxWait) {
+        Assert.isTrue(!maxWait.isNegative(), "Max wait must not be negative!");
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            return lead(key, mine, call);
+        }
+        coalesced.incrementAndGet();
+        try {
+            return running.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            executions.incrementAndGet();
+            return call.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an in-flight call: " + key, e);
+        }
+    }
+
+    /**
+     * 실행된 횟수(기다리다 시간이 넘어 직접 실행한 경우 포함)
+     */
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    /**
+     * 진행 중인 실행에 합류한 호출 수
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * 기다리다 시간이 넘어 직접 실행한 호출 수
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    private V lead(K key, CompletableFuture<V> mine, Supplier<V> call) {
+        executions.incrementAndGet();
+        try {
+            V value = call.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.repository.support.advisor;
+
+import lombok.Getter;
+
+/**
+ * 조건/정렬 모양 하나에 대한 인덱스 판정
+ */
+@Getter
+public class IndexAdvice {
+
+    public enum Status {
+        /** 조건과 정렬을 모두 인덱스로 처리할 수 있다. */
+        SERVED,
+        /** 인덱스를 쓸 수는 있지만 일부 조건은 읽은 행을 다시 걸러야 하거나 정렬해야 한다. */
+        PARTIAL,
+        /** 쓸 수 있는 인덱스가 없다 - 테이블 전체를 읽는다. */
+        UNSERVED
+    }
+
+    private final PredicateShape shape;
+    private final Status status;
+    /** 이 모양이 실행된 횟수 */
+    private final long count;
+    /** 이 모양의 SQL 예 (fingerprint) */
+    private final String sample;
+
+    public IndexAdvice(PredicateShape shape, Status status, long count, String sample) {
+        this.shape = shape;
+        this.status = status;
+        this.count = count;
+        this.sample = sample;
+    }
+}
@@ -0,0 +1,107 @@
+package study.querydsl.repository.support.advisor;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.support.statement.RepositoryCall;
+import study.querydsl.repository.support.statement.RepositoryCallListener;
+import study.querydsl.repository.support.statement.SqlFingerprint;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 리포지토리가 실제로 실행하는 조건/정렬 모양을 모아 현재 인덱스로 처리할 수 있는지 알려준다. local, dev 프로파일에서만 동작한다.
+ * <p>
+ * 인덱스 정보는 {@link #report()} 할 때마다 JDBC 메타데이터에서 읽으므로 인덱스를 바꾸면 바로 반영된다.
+ */
+@Component
+@Profile({"local", "dev"})
+public class IndexAdvisor implements RepositoryCallListener {
+
+    private final DataSource dataSource;
+
+    /** fingerprint -> 모양 - 같은 SQL 을 다시 분석하지 않는다. */
+    private final ConcurrentMap<String, List<PredicateShape>> parsed = new ConcurrentHashMap<>();
+    private final ConcurrentMap<PredicateShape, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<PredicateShape, String> samples = new ConcurrentHashMap<>();
+
+    public IndexAdvisor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterCall(RepositoryCall call) {
+        call.getScope().getStatements().forEach(this::record);
+    }
+
+    public void record(String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        for (PredicateShape shape : parsed.computeIfAbsent(fingerprint, PredicateShape::parse)) {
+            counts.computeIfAbsent(shape, key -> new AtomicLong()).incrementAndGet();
+            samples.putIfAbsent(shape, fingerprint);
+        }
+    }
+
+    /**
+     * @return 기록된 모든 모양의 판정 - UNSERVED, PARTIAL, SERVED 순, 같은 판정 안에서는 실행 횟수가 많은 순
+     */
+    public List<IndexAdvice> report() {
+        Map<String, List<List<String>>> indexesByTable = new LinkedHashMap<>();
+        List<IndexAdvice> advices = new ArrayList<>();
+        counts.forEach((shape, count) -> {
+            List<List<String>> indexes = indexesByTable.computeIfAbsent(shape.getTable(), this::readIndexes);
+            advices.add(new IndexAdvice(shape, shape.evaluate(indexes), count.get(), samples.get(shape)));
+        });
+        advices.sort(Comparator.comparing((IndexAdvice advice) -> advice.getStatus()).reversed()
+                .thenComparing(Comparator.comparingLong(IndexAdvice::getCount).reversed()));
+        return advices;
+    }
+
+    public void reset() {
+        parsed.clear();
+        counts.clear();
+        samples.clear();
+    }
+
+    private List<List<String>> readIndexes(String table) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String name = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+            Map<String, List<String>> columnsByIndex = new LinkedHashMap<>();
+            try (ResultSet rs = metaData.getIndexInfo(null, null, name, false, true)) {
+                while (rs.next()) {
+                    String index = rs.getString("INDEX_NAME");
+                    String column = rs.getString("COLUMN_NAME");
+                    if (index == null || column == null) {
+                        continue;
+                    }
+                    List<String> columns = columnsByIndex.computeIfAbsent(index, key -> new ArrayList<>());
+                    int position = rs.getInt("ORDINAL_POSITION");
+                    while (columns.size() < position) {
+                        columns.add(null);
+                    }
+                    columns.set(position - 1, column.toLowerCase(Locale.ROOT));
+                }
+            }
+            return new ArrayList<>(columnsByIndex.values());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read indexes of " + table, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
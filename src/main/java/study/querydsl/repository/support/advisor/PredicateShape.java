@@ -0,0 +1,181 @@
+package study.querydsl.repository.support.advisor;
+
+import lombok.Getter;
+import study.querydsl.repository.support.statement.SqlFingerprint;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * select 문 하나에서 테이블별로 뽑은 조건 컬럼과 정렬 컬럼
+ * <p>
+ * Hibernate 가 만드는 SQL(모든 컬럼에 별칭이 붙는다)을 대상으로 한 단순한 분석이다.
+ * 등호/IN/IS 조건은 equality, 부등호/BETWEEN/LIKE 조건은 range 로 본다. join 의 on 조건은 보지 않는다.
+ */
+@Getter
+public class PredicateShape {
+
+    private static final Pattern TABLE_ALIAS = Pattern.compile("\\b(?:from|join)\\s+(\\w+)\\s+(\\w+)");
+    private static final Pattern PREDICATE = Pattern.compile(
+            "\\b(\\w+)\\.(\\w+)\\s*(>=|<=|<>|!=|=|>|<|\\bin\\b|\\bbetween\\b|\\blike\\b|\\bis\\b)");
+    private static final Pattern COLUMN = Pattern.compile("\\b(\\w+)\\.(\\w+)");
+    private static final Pattern WHERE_END = Pattern.compile(" (?:order by|group by|limit|offset|for update)\\b");
+    private static final Pattern ORDER_END = Pattern.compile(" (?:limit|offset|for update)\\b");
+
+    private final String table;
+    private final SortedSet<String> equality;
+    private final SortedSet<String> range;
+    private final List<String> orderBy;
+
+    PredicateShape(String table, SortedSet<String> equality, SortedSet<String> range, List<String> orderBy) {
+        this.table = table;
+        this.equality = Collections.unmodifiableSortedSet(equality);
+        this.range = Collections.unmodifiableSortedSet(range);
+        this.orderBy = Collections.unmodifiableList(orderBy);
+    }
+
+    /**
+     * @return 조건이나 정렬이 있는 테이블별 모양. select 가 아니면 빈 목록
+     */
+    public static List<PredicateShape> parse(String sql) {
+        String fingerprint = SqlFingerprint.of(sql);
+        if (!fingerprint.startsWith("select ")) {
+            return Collections.emptyList();
+        }
+
+        Map<String, String> tables = new HashMap<>();
+        Matcher aliases = TABLE_ALIAS.matcher(fingerprint);
+        while (aliases.find()) {
+            tables.put(aliases.group(2), aliases.group(1));
+        }
+
+        Map<String, Builder> builders = new LinkedHashMap<>();
+        int where = fingerprint.indexOf(" where ");
+        int orderBy = fingerprint.indexOf(" order by ");
+        if (where >= 0) {
+            Matcher end = WHERE_END.matcher(fingerprint);
+            int whereEnd = end.find(where) ? end.start() : fingerprint.length();
+            Matcher predicates = PREDICATE.matcher(fingerprint.substring(where, whereEnd));
+            while (predicates.find()) {
+                String table = tables.get(predicates.group(1));
+                if (table == null) {
+                    continue;
+                }
+                Builder builder = builders.computeIfAbsent(table, Builder::new);
+                String column = predicates.group(2);
+                switch (predicates.group(3)) {
+                    case "=":
+                    case "in":
+                    case "is":
+                        builder.equality.add(column);
+                        break;
+                    case "<>":
+                    case "!=":
+                        break;
+                    default:
+                        builder.range.add(column);
+                }
+            }
+        }
+        if (orderBy >= 0) {
+            Matcher end = ORDER_END.matcher(fingerprint);
+            int orderEnd = end.find(orderBy) ? end.start() : fingerprint.length();
+            Matcher columns = COLUMN.matcher(fingerprint.substring(orderBy, orderEnd));
+            while (columns.find()) {
+                String table = tables.get(columns.group(1));
+                if (table != null) {
+                    builders.computeIfAbsent(table, Builder::new).orderBy.add(columns.group(2));
+                }
+            }
+        }
+
+        List<PredicateShape> shapes = new ArrayList<>(builders.size());
+        builders.values().forEach(builder -> shapes.add(builder.build()));
+        return shapes;
+    }
+
+    /**
+     * 같은 등호 조건 컬럼 다음에 range 조건 컬럼 하나가 오는 인덱스가 있으면 조건을 모두 인덱스로 처리할 수 있다.
+     * 정렬이 있으면 인덱스에서 등호 조건 컬럼 다음 컬럼들이 정렬 컬럼과 같아야 정렬 없이 읽을 수 있다.
+     * (정렬 컬럼 중 등호 조건 컬럼은 값이 하나뿐이므로 뺀다.) 조건은 처리하지만 정렬을 다시 해야 하면 PARTIAL 이다.
+     * 조건도 정렬도 없으면 테이블 전체를 읽으므로 UNSERVED 이다.
+     *
+     * @param indexes 이 테이블의 인덱스별 컬럼 목록(순서대로)
+     */
+    public IndexAdvice.Status evaluate(List<List<String>> indexes) {
+        if (equality.isEmpty() && range.isEmpty() && orderBy.isEmpty()) {
+            return IndexAdvice.Status.UNSERVED;
+        }
+        List<String> order = new ArrayList<>(orderBy);
+        order.removeAll(equality);
+
+        boolean usable = false;
+        for (List<String> index : indexes) {
+            int prefix = 0;
+            while (prefix < index.size() && equality.contains(index.get(prefix))) {
+                prefix++;
+            }
+            boolean rangeCovered = range.isEmpty() || (prefix < index.size() && range.contains(index.get(prefix)));
+            if (prefix == equality.size() && rangeCovered) {
+                if (prefix + order.size() <= index.size()
+                        && index.subList(prefix, prefix + order.size()).equals(order)) {
+                    return IndexAdvice.Status.SERVED;
+                }
+            }
+            if (!index.isEmpty() && (equality.contains(index.get(0)) || range.contains(index.get(0)))) {
+                usable = true;
+            }
+        }
+        return usable ? IndexAdvice.Status.PARTIAL : IndexAdvice.Status.UNSERVED;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PredicateShape)) {
+            return false;
+        }
+        PredicateShape that = (PredicateShape) o;
+        return table.equals(that.table) && equality.equals(that.equality)
+                && range.equals(that.range) && orderBy.equals(that.orderBy);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, equality, range, orderBy);
+    }
+
+    @Override
+    public String toString() {
+        return table + " where eq" + equality + " range" + range + " order by " + orderBy;
+    }
+
+    private static class Builder {
+
+        private final String table;
+        private final SortedSet<String> equality = new TreeSet<>();
+        private final SortedSet<String> range = new TreeSet<>();
+        private final List<String> orderBy = new ArrayList<>();
+
+        private Builder(String table) {
+            this.table = table;
+        }
+
+        private PredicateShape build() {
+            // range 와 equality 에 모두 나오는 컬럼(keyset 조건 등)은 equality 로 본다.
+            range.removeAll(equality);
+            return new PredicateShape(table, equality, range, orderBy);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package study.querydsl.repository.support.metrics;
+
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.statement.RepositoryCall;
+import study.querydsl.repository.support.statement.RepositoryCallListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 리포지토리 메서드별 지연 시간, 결과 행 수, 실행 SQL 수 히스토그램
+ * <p>
+ * 항목은 (메서드, 태그) 로 나뉜다. 태그는 인자로 받은 {@link MemberSearchCondition} 에서 값이 있는 필드 이름이다.
+ * content, count 같은 호출 안의 구간은 "메서드#구간" 항목으로 따로 기록한다.
+ * {@link study.querydsl.repository.support.statement.RepositoryStatementAspect} 가 알려 주는 호출을 기록하므로
+ * member.statements.capture.enabled=true 일 때만 쌓인다.
+ */
+@Component
+public class QueryMetrics implements RepositoryCallListener {
+
+    /** 검색 조건 인자가 없는 메서드 */
+    public static final String NO_CONDITION = "-";
+    /** 검색 조건은 있지만 값이 있는 필드가 없는 경우 */
+    public static final String EMPTY_CONDITION = "none";
+
+    private final ConcurrentMap<Key, QueryMetricsEntry> entries = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterCall(RepositoryCall call) {
+        String tags = tagsOf(call.getArgs());
+        int statements = call.getScope().getCount();
+        record(call.getMethod(), tags, call.getElapsedNanos(), RepositoryCall.rowsOf(call.getResult()), statements);
+        for (RepositoryCall.Phase phase : call.getPhases()) {
+            record(call.getMethod() + "#" + phase.getName(), tags,
+                    phase.getElapsedNanos(), phase.getRows(), phase.getStatements());
+        }
+    }
+
+    /**
+     * @param rows 알 수 없으면 음수 - 행 수는 기록하지 않는다.
+     */
+    public void record(String method, String tags, long elapsedNanos, long rows, int statements) {
+        entries.computeIfAbsent(new Key(method, tags), key -> new QueryMetricsEntry())
+                .record(elapsedNanos, rows, statements);
+    }
+
+    public List<QueryMetricsSnapshot> snapshot() {
+        List<QueryMetricsSnapshot> snapshots = new ArrayList<>();
+        entries.forEach((key, entry) -> snapshots.add(entry.snapshot(key.method, key.tags)));
+        snapshots.sort(Comparator.comparing(QueryMetricsSnapshot::getMethod)
+                .thenComparing(QueryMetricsSnapshot::getTags));
+        return snapshots;
+    }
+
+    public void reset() {
+        entries.clear();
+    }
+
+    public static String tagsOf(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition) {
+                return tagsOf(((MemberSearchCondition) arg).presentFields());
+            }
+        }
+        return NO_CONDITION;
+    }
+
+    public static String tagsOf(List<String> fields) {
+        return fields.isEmpty() ? EMPTY_CONDITION : String.join(",", fields);
+    }
+
+    private static final class Key {
+
+        private final String method;
+        private final String tags;
+
+        private Key(String method, String tags) {
+            this.method = method;
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return method.equals(key.method) && tags.equals(key.tags);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * method.hashCode() + tags.hashCode();
+        }
+    }
+}
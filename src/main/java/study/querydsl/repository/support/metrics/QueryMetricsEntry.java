@@ -0,0 +1,43 @@
+package study.querydsl.repository.support.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SynchronizedHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (메서드, 태그) 하나의 히스토그램 묶음
+ * 지연 시간은 마이크로초 단위, 유효 숫자 3자리로 기록한다.
+ */
+class QueryMetricsEntry {
+
+    private final Histogram latencyMicros = new SynchronizedHistogram(3);
+    private final Histogram rows = new SynchronizedHistogram(2);
+    private final Histogram statements = new SynchronizedHistogram(2);
+
+    void record(long elapsedNanos, long rowCount, int statementCount) {
+        latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+        if (rowCount >= 0) {
+            rows.recordValue(rowCount);
+        }
+        statements.recordValue(statementCount);
+    }
+
+    QueryMetricsSnapshot snapshot(String method, String tags) {
+        Histogram latency = latencyMicros.copy();
+        Histogram rowCopy = rows.copy();
+        Histogram statementCopy = statements.copy();
+        return new QueryMetricsSnapshot(method, tags, latency.getTotalCount(),
+                millis(latency.getValueAtPercentile(50)),
+                millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)),
+                millis(latency.getMaxValue()),
+                latency.getMean() / 1000,
+                rowCopy.getMean(), rowCopy.getMaxValue(),
+                statementCopy.getMean(), statementCopy.getMaxValue());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
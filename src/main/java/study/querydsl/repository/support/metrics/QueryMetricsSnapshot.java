@@ -0,0 +1,40 @@
+package study.querydsl.repository.support.metrics;
+
+import lombok.Getter;
+
+/**
+ * 조회 시점의 메트릭 - 지연 시간은 밀리초
+ */
+@Getter
+public class QueryMetricsSnapshot {
+
+    private final String method;
+    private final String tags;
+    private final long count;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double max;
+    private final double mean;
+    private final double rowsMean;
+    private final long rowsMax;
+    private final double statementsMean;
+    private final long statementsMax;
+
+    public QueryMetricsSnapshot(String method, String tags, long count,
+                                double p50, double p90, double p99, double max, double mean,
+                                double rowsMean, long rowsMax, double statementsMean, long statementsMax) {
+        this.method = method;
+        this.tags = tags;
+        this.count = count;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+        this.mean = mean;
+        this.rowsMean = rowsMean;
+        this.rowsMax = rowsMax;
+        this.statementsMean = statementsMean;
+        this.statementsMax = statementsMax;
+    }
+}
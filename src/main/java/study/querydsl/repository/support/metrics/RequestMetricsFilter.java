@@ -0,0 +1,59 @@
+package study.querydsl.repository.support.metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * /v1/members, /v3/members 등 회원 API 요청 전체 시간을 "GET /v3/members" 같은 항목으로 기록한다.
+ * 리포지토리 호출 시간과 비교하면 직렬화 등 리포지토리 밖에서 쓴 시간을 알 수 있다.
+ * 매핑된 핸들러가 없는 요청(404 등)은 요청 URI 마다 항목이 늘어나지 않도록 {@link #UNMATCHED} 하나로 모은다.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    public static final String UNMATCHED = "UNMATCHED";
+
+    private static final String[] CONDITION_PARAMETERS = {"username", "teamName", "ageGoe", "ageLoe"};
+
+    private final QueryMetrics queryMetrics;
+
+    public RequestMetricsFilter(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().matches("/v\\d+/members.*");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        filterChain.doFilter(request, response);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String name = pattern != null ? request.getMethod() + " " + pattern : UNMATCHED;
+        queryMetrics.record(name, tagsOf(request), System.nanoTime() - start, -1, 0);
+    }
+
+    private static String tagsOf(HttpServletRequest request) {
+        List<String> fields = new ArrayList<>();
+        for (String parameter : CONDITION_PARAMETERS) {
+            if (hasText(request.getParameter(parameter))) {
+                fields.add(parameter);
+            }
+        }
+        return QueryMetrics.tagsOf(fields);
+    }
+}
@@ -0,0 +1,111 @@
+package study.querydsl.repository.support.slowquery;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.support.statement.SqlFingerprint;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * p6spy 로 실행되는 모든 SQL 을 fingerprint 별로 집계한다.
+ * <p>
+ * 실행 횟수, 전체/최대 시간, p99 는 모든 SQL 에 대해 기록하고,
+ * threshold 를 넘은 SQL 만 바인딩 값이 들어간 SQL 을 샘플로 남긴다.
+ * 누적 시간 상위 N 개를 주기적으로 로그에 남기고 /metrics/slow-queries 로 조회할 수 있다.
+ * fingerprint 종류는 max-fingerprints 까지만 기록하고 나머지는 버린 개수만 센다.
+ */
+@Slf4j
+@Component
+public class SlowQueryLog extends SimpleJdbcEventListener {
+
+    private final long thresholdNanos;
+    private final int top;
+    private final int maxFingerprints;
+    private final int samplesPerFingerprint;
+
+    private final ConcurrentMap<String, SlowQueryStats> stats = new ConcurrentHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SlowQueryLog(@Value("${member.slow-query.threshold:200ms}") Duration threshold,
+                        @Value("${member.slow-query.top:10}") int top,
+                        @Value("${member.slow-query.max-fingerprints:1000}") int maxFingerprints,
+                        @Value("${member.slow-query.samples-per-fingerprint:5}") int samplesPerFingerprint) {
+        this.thresholdNanos = threshold.toNanos();
+        this.top = top;
+        this.maxFingerprints = maxFingerprints;
+        this.samplesPerFingerprint = samplesPerFingerprint;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        String sql = statementInformation.getSql();
+        if (sql == null || sql.isEmpty()) {
+            return;
+        }
+        SlowQueryStats entry = statsOf(SqlFingerprint.of(sql));
+        if (entry == null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        String sqlWithValues = timeElapsedNanos >= thresholdNanos ? statementInformation.getSqlWithValues() : null;
+        entry.record(timeElapsedNanos, sqlWithValues);
+    }
+
+    /**
+     * 누적 시간이 큰 순서로 상위 n 개
+     */
+    public List<SlowQuerySnapshot> top(int n) {
+        return stats.values().stream()
+                .map(SlowQueryStats::snapshot)
+                .sorted(Comparator.comparingDouble(SlowQuerySnapshot::getTotalMillis).reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public void reset() {
+        stats.clear();
+        dropped.set(0);
+    }
+
+    @Scheduled(fixedDelayString = "${member.slow-query.dump-interval:PT1M}",
+            initialDelayString = "${member.slow-query.dump-interval:PT1M}")
+    public void dump() {
+        List<SlowQuerySnapshot> offenders = top(top);
+        if (offenders.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Top ").append(offenders.size()).append(" queries by total time");
+        for (SlowQuerySnapshot offender : offenders) {
+            message.append(String.format("%n  count=%d total=%.1fms max=%.1fms p99=%.1fms slow=%d %s",
+                    offender.getCount(), offender.getTotalMillis(), offender.getMaxMillis(), offender.getP99Millis(),
+                    offender.getSlowCount(), offender.getFingerprint()));
+        }
+        log.info(message.toString());
+    }
+
+    private SlowQueryStats statsOf(String fingerprint) {
+        SlowQueryStats entry = stats.get(fingerprint);
+        if (entry != null) {
+            return entry;
+        }
+        if (stats.size() >= maxFingerprints) {
+            return null;
+        }
+        return stats.computeIfAbsent(fingerprint, key -> new SlowQueryStats(key, samplesPerFingerprint));
+    }
+}
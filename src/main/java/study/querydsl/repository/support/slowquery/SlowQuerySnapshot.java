@@ -0,0 +1,33 @@
+package study.querydsl.repository.support.slowquery;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 조회 시점의 fingerprint 집계 - 시간은 밀리초
+ */
+@Getter
+public class SlowQuerySnapshot {
+
+    private final String fingerprint;
+    private final long count;
+    private final double totalMillis;
+    private final double maxMillis;
+    private final double p99Millis;
+    /** threshold 를 넘은 실행 횟수 */
+    private final long slowCount;
+    /** threshold 를 넘은 최근 SQL - 바인딩 값 포함 */
+    private final List<String> samples;
+
+    public SlowQuerySnapshot(String fingerprint, long count, double totalMillis, double maxMillis, double p99Millis,
+                             long slowCount, List<String> samples) {
+        this.fingerprint = fingerprint;
+        this.count = count;
+        this.totalMillis = totalMillis;
+        this.maxMillis = maxMillis;
+        this.p99Millis = p99Millis;
+        this.slowCount = slowCount;
+        this.samples = samples;
+    }
+}
@@ -0,0 +1,51 @@
+package study.querydsl.repository.support.slowquery;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * fingerprint 하나의 집계 - 시간은 마이크로초로 기록한다.
+ * 느린 SQL 샘플은 최근 것부터 samples 개만 남긴다.
+ */
+class SlowQueryStats {
+
+    private final String fingerprint;
+    private final int maxSamples;
+
+    private final Histogram latencyMicros = new Histogram(3);
+    private final Deque<String> samples = new ArrayDeque<>();
+    private long totalMicros;
+    private long slowCount;
+
+    SlowQueryStats(String fingerprint, int maxSamples) {
+        this.fingerprint = fingerprint;
+        this.maxSamples = maxSamples;
+    }
+
+    synchronized void record(long elapsedNanos, String sqlWithValues) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        latencyMicros.recordValue(micros);
+        totalMicros += micros;
+        if (sqlWithValues != null) {
+            slowCount++;
+            if (maxSamples > 0) {
+                if (samples.size() == maxSamples) {
+                    samples.removeLast();
+                }
+                samples.addFirst(sqlWithValues);
+            }
+        }
+    }
+
+    synchronized SlowQuerySnapshot snapshot() {
+        return new SlowQuerySnapshot(fingerprint, latencyMicros.getTotalCount(),
+                totalMicros / 1000.0,
+                latencyMicros.getMaxValue() / 1000.0,
+                latencyMicros.getValueAtPercentile(99) / 1000.0,
+                slowCount, new ArrayList<>(samples));
+    }
+}
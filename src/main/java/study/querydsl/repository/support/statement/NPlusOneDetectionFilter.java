@@ -0,0 +1,35 @@
+package study.querydsl.repository.support.statement;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 요청 하나에서 실행된 SQL 을 모아 {@link NPlusOneDetector} 로 검사한다.
+ * 컨트롤러나 뷰에서 getTeam().getName() 같은 지연 로딩으로 생기는 N+1 을 잡기 위함이다.
+ */
+@Component
+@Profile({"local", "dev"})
+public class NPlusOneDetectionFilter extends OncePerRequestFilter {
+
+    private final NPlusOneDetector detector;
+
+    public NPlusOneDetectionFilter(NPlusOneDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (StatementScope scope = StatementRecorder.open(request.getMethod() + " " + request.getRequestURI())) {
+            filterChain.doFilter(request, response);
+            detector.inspect(scope);
+        }
+    }
+}
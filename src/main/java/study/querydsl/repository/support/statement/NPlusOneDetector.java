@@ -0,0 +1,37 @@
+package study.querydsl.repository.support.statement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 같은 모양의 select 가 반복되면(N+1) 경고 로그를 남긴다. local, dev 프로파일에서만 동작한다.
+ * <p>
+ * 리포지토리 호출 안에서 일어난 N+1 은 {@link RepositoryStatementAspect} 가,
+ * 호출이 끝난 뒤 지연 로딩으로 일어난 N+1 은 요청 단위로 {@link NPlusOneDetectionFilter} 가 넘겨준다.
+ */
+@Slf4j
+@Component
+@Profile({"local", "dev"})
+public class NPlusOneDetector implements RepositoryCallListener {
+
+    private final int threshold;
+
+    public NPlusOneDetector(@Value("${member.statements.n-plus-one-threshold:3}") int threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void afterCall(RepositoryCall call) {
+        inspect(call.getScope());
+    }
+
+    public void inspect(StatementScope scope) {
+        Map<String, Integer> repeated = scope.repeatedSelects(threshold);
+        repeated.forEach((sql, count) ->
+                log.warn("Possible N+1 in {}: same select executed {} times - {}", scope.getName(), count, sql));
+    }
+}
@@ -0,0 +1,153 @@
+package study.querydsl.repository.support.statement;
+
+import org.springframework.data.domain.Slice;
+import study.querydsl.repository.support.KeysetPage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * 리포지토리 메서드 한 번의 호출 기록
+ * <p>
+ * {@link RepositoryStatementAspect} 가 만들고 호출이 끝나면 {@link RepositoryCallListener} 에게 넘긴다.
+ * 호출 안에서 {@link #phase(String, Supplier)} 로 감싼 구간(content, count 등)은 따로 시간과 SQL 수를 기록한다.
+ */
+public class RepositoryCall {
+
+    private static final ThreadLocal<Deque<RepositoryCall>> current = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final String method;
+    private final Object[] args;
+    private final StatementScope scope;
+    private final List<Phase> phases = new ArrayList<>();
+    private Object result;
+    private long elapsedNanos;
+
+    RepositoryCall(String method, Object[] args, StatementScope scope) {
+        this.method = method;
+        this.args = args;
+        this.scope = scope;
+    }
+
+    /**
+     * 현재 리포지토리 호출의 한 구간을 기록한다. 리포지토리 호출 밖이면 그냥 실행한다.
+     */
+    public static <T> T phase(String name, Supplier<T> work) {
+        RepositoryCall call = current.get().peek();
+        if (call == null) {
+            return work.get();
+        }
+        long start = System.nanoTime();
+        try (StatementScope phaseScope = StatementRecorder.open(call.method + "#" + name)) {
+            T result = work.get();
+            call.phases.add(new Phase(name, System.nanoTime() - start, phaseScope.getCount(), rowsOf(result)));
+            return result;
+        }
+    }
+
+    /**
+     * 결과 행 수 - 알 수 없으면(Stream 등) -1
+     */
+    public static long rowsOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Slice) {
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof KeysetPage) {
+            return ((KeysetPage<?>) result).getContent().size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof AutoCloseable) {
+            return -1;
+        }
+        return 1;
+    }
+
+    void begin() {
+        current.get().push(this);
+    }
+
+    void end() {
+        Deque<RepositoryCall> calls = current.get();
+        calls.remove(this);
+        if (calls.isEmpty()) {
+            current.remove();
+        }
+    }
+
+    void complete(Object result, long elapsedNanos) {
+        this.result = result;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return 예: MemberRepositoryImpl.searchPageComplex
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public StatementScope getScope() {
+        return scope;
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public static class Phase {
+
+        private final String name;
+        private final long elapsedNanos;
+        private final int statements;
+        private final long rows;
+
+        Phase(String name, long elapsedNanos, int statements, long rows) {
+            this.name = name;
+            this.elapsedNanos = elapsedNanos;
+            this.statements = statements;
+            this.rows = rows;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+    }
+}
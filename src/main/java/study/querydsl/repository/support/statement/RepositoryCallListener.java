@@ -0,0 +1,9 @@
+package study.querydsl.repository.support.statement;
+
+/**
+ * {@link RepositoryStatementAspect} 가 리포지토리 호출이 정상적으로 끝날 때마다 알려준다.
+ */
+public interface RepositoryCallListener {
+
+    void afterCall(RepositoryCall call);
+}
@@ -0,0 +1,67 @@
+package study.querydsl.repository.support.statement;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 리포지토리 호출마다 실행된 SQL 을 기록한다.
+ * <p>
+ * study.querydsl.repository 패키지의 *Repository* 클래스(MemberJpaRepository, MemberRepositoryImpl, MemberTestRepository)
+ * public 메서드가 대상이다. 호출이 끝나면 실행 시간, 결과와 함께 {@link RepositoryCallListener} 에게 넘긴다.
+ * <p>
+ * member.statements.capture.enabled=true 일 때만 등록된다. 꺼져 있으면 리스너(QueryMetrics 등)에게 전달되는 호출도 없다.
+ */
+@Slf4j
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "member.statements.capture", name = "enabled", havingValue = "true")
+public class RepositoryStatementAspect {
+
+    private final ObjectProvider<RepositoryCallListener> listenerProvider;
+
+    private volatile List<RepositoryCallListener> listeners;
+
+    public RepositoryStatementAspect(ObjectProvider<RepositoryCallListener> listenerProvider) {
+        this.listenerProvider = listenerProvider;
+    }
+
+    @Around("execution(public * *(..)) && within(study.querydsl.repository.*Repository*)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName() + "." + joinPoint.getSignature().getName();
+        try (StatementScope scope = StatementRecorder.open(method)) {
+            RepositoryCall call = new RepositoryCall(method, joinPoint.getArgs(), scope);
+            long start = System.nanoTime();
+            call.begin();
+            Object result;
+            try {
+                result = joinPoint.proceed();
+            } finally {
+                call.end();
+            }
+            call.complete(result, System.nanoTime() - start);
+            log.debug("{} executed {} statements", method, scope.getCount());
+            for (RepositoryCallListener listener : listeners()) {
+                listener.afterCall(call);
+            }
+            return result;
+        }
+    }
+
+    private List<RepositoryCallListener> listeners() {
+        List<RepositoryCallListener> current = listeners;
+        if (current == null) {
+            current = listenerProvider.orderedStream().collect(Collectors.toList());
+            listeners = current;
+        }
+        return current;
+    }
+}
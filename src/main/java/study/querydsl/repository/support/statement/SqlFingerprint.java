@@ -0,0 +1,32 @@
+package study.querydsl.repository.support.statement;
+
+import java.util.regex.Pattern;
+
+/**
+ * SQL 에서 값을 지워 같은 모양의 SQL 이 같은 문자열이 되게 한다.
+ * <pre>
+ * select m.id from member m where m.age &gt;= 20 and m.username in ('a', 'b') -- use_sql_comments 주석 포함
+ * -&gt; select m.id from member m where m.age &gt;= ? and m.username in (?+)
+ * </pre>
+ * 문자열/숫자 리터럴과 바인딩 값은 ? 로, 길이가 다른 IN 목록은 (?+) 로 바꾸고 주석과 공백을 정리한 뒤 소문자로 만든다.
+ */
+public final class SqlFingerprint {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/|--[^\\n]*", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SqlFingerprint() {
+    }
+
+    public static String of(String sql) {
+        String fingerprint = COMMENT.matcher(sql).replaceAll(" ");
+        fingerprint = STRING_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+        fingerprint = IN_LIST.matcher(fingerprint).replaceAll("(?+)");
+        return fingerprint.toLowerCase();
+    }
+}
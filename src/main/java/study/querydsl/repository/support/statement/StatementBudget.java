@@ -0,0 +1,30 @@
+package study.querydsl.repository.support.statement;
+
+import java.util.function.Supplier;
+
+/**
+ * 한 번의 호출이 실행할 수 있는 SQL 수를 검사한다.
+ * <pre>
+ * List&lt;Member&gt; members = StatementBudget.atMost(2, () -> memberJpaRepository.searchMember(condition));
+ * </pre>
+ */
+public final class StatementBudget {
+
+    private StatementBudget() {
+    }
+
+    public static <T> T atMost(int maxStatements, Supplier<T> call) {
+        return StatementRecorder.record("budget", call, scope -> {
+            if (scope.getCount() > maxStatements) {
+                throw new StatementBudgetExceededException(maxStatements, scope);
+            }
+        });
+    }
+
+    public static void atMost(int maxStatements, Runnable call) {
+        atMost(maxStatements, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,22 @@
+package study.querydsl.repository.support.statement;
+
+public class StatementBudgetExceededException extends IllegalStateException {
+
+    private final int budget;
+    private final int actual;
+
+    public StatementBudgetExceededException(int budget, StatementScope scope) {
+        super("Expected at most " + budget + " statements but " + scope.getCount() + " were executed:\n"
+                + String.join("\n", scope.getStatements()));
+        this.budget = budget;
+        this.actual = scope.getCount();
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public int getActual() {
+        return actual;
+    }
+}
@@ -0,0 +1,64 @@
+package study.querydsl.repository.support.statement;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * 현재 스레드에서 실행된 SQL 을 열려 있는 모든 {@link StatementScope} 에 기록한다.
+ * <p>
+ * 열린 scope 가 없으면 아무것도 기록하지 않는다. 다른 스레드(예: 동시 count 실행기)에서 실행된 SQL 은 포함되지 않는다.
+ */
+public final class StatementRecorder {
+
+    private static final ThreadLocal<Deque<StatementScope>> scopes = new ThreadLocal<>();
+
+    private StatementRecorder() {
+    }
+
+    public static StatementScope open(String name) {
+        Deque<StatementScope> current = scopes.get();
+        if (current == null) {
+            current = new ArrayDeque<>();
+            scopes.set(current);
+        }
+        StatementScope scope = new StatementScope(name);
+        current.push(scope);
+        return scope;
+    }
+
+    public static <T> T record(String name, Supplier<T> call, ScopeConsumer afterCall) {
+        try (StatementScope scope = open(name)) {
+            T result = call.get();
+            afterCall.accept(scope);
+            return result;
+        }
+    }
+
+    static void record(String sql) {
+        Deque<StatementScope> current = scopes.get();
+        if (current == null) {
+            return;
+        }
+        String statement = StatementScope.normalize(sql);
+        for (StatementScope scope : current) {
+            scope.add(statement);
+        }
+    }
+
+    static void close(StatementScope scope) {
+        Deque<StatementScope> current = scopes.get();
+        if (current == null) {
+            return;
+        }
+        current.remove(scope);
+        if (current.isEmpty()) {
+            scopes.remove();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ScopeConsumer {
+        void accept(StatementScope scope);
+    }
+}
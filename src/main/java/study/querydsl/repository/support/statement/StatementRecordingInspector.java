@@ -0,0 +1,16 @@
+package study.querydsl.repository.support.statement;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Hibernate 가 준비하는 모든 SQL 을 {@link StatementRecorder} 에 기록한다.
+ * member.statements.capture.enabled=true 이면 {@link study.querydsl.config.StatementCaptureConfig} 가 등록한다.
+ */
+public class StatementRecordingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        StatementRecorder.record(sql);
+        return sql;
+    }
+}
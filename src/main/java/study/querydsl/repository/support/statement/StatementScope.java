@@ -0,0 +1,62 @@
+package study.querydsl.repository.support.statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link StatementRecorder#open(String)} 부터 {@link #close()} 까지 실행된 SQL 목록
+ * SQL 은 use_sql_comments 주석을 떼고 공백을 정리해서 기록한다.
+ */
+public class StatementScope implements AutoCloseable {
+
+    private final String name;
+    private final List<String> statements = new ArrayList<>();
+
+    StatementScope(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCount() {
+        return statements.size();
+    }
+
+    public List<String> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    /**
+     * 같은 모양({@link SqlFingerprint})의 select 가 threshold 번 이상 실행된 경우 - N+1 의 전형적인 모습이다.
+     *
+     * @return SQL fingerprint 별 실행 횟수
+     */
+    public Map<String, Integer> repeatedSelects(int threshold) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String statement : statements) {
+            if (statement.regionMatches(true, 0, "select", 0, 6)) {
+                counts.merge(SqlFingerprint.of(statement), 1, Integer::sum);
+            }
+        }
+        counts.values().removeIf(count -> count < threshold);
+        return counts;
+    }
+
+    void add(String statement) {
+        statements.add(statement);
+    }
+
+    @Override
+    public void close() {
+        StatementRecorder.close(this);
+    }
+
+    static String normalize(String sql) {
+        return sql.replaceAll("(?s)/\\*.*?\\*/", " ").replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 내장 H2 인스턴스 두 개(primary, replica)로 JpaTransactionManager + LazyConnectionDataSourceProxy 를 거친 라우팅을 확인한다.
+ * replica 에는 Hibernate 가 스키마를 만들지 않으므로 직접 만들고 primary 와 다른 데이터를 넣는다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.connection-init-sql=set @pool = 'hikari'",
+        "member.datasource.replicas.enabled=true",
+        "member.datasource.replicas.urls[0]=" + ReadReplicaDataSourceConfigTest.REPLICA_URL
+})
+class ReadReplicaDataSourceConfigTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    public void before() {
+        replica.execute("create table if not exists team (id bigint primary key, name varchar(255))");
+        replica.execute("create table if not exists member (member_id bigint primary key, age integer not null, " +
+                "username varchar(255), team_id bigint)");
+        replica.update("insert into team (id, name) values (1, 'replicaTeam')");
+        replica.update("insert into member (member_id, age, username, team_id) values (1, 10, 'replicaMember', 1)");
+    }
+
+    @AfterEach
+    public void after() {
+        replica.update("delete from member");
+        replica.update("delete from team");
+        jdbcTemplate.update("delete from member");
+    }
+
+    @Test
+    @DisplayName("읽기 전용 리포지토리 호출은 replica, 쓰기는 primary 로 간다")
+    public void routeThroughJpaTransactionManager() {
+        assertThat(transactionManager).isInstanceOf(JpaTransactionManager.class);
+
+        assertThat(memberRepository.search(new MemberSearchCondition()))
+                .extracting("username", "teamName").containsExactly(tuple("replicaMember", "replicaTeam"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Member("written", 20)));
+
+        assertThat(jdbcTemplate.queryForList("select username from member", String.class)).containsExactly("written");
+        assertThat(replica.queryForList("select username from member", String.class)).containsExactly("replicaMember");
+    }
+
+    @Test
+    @DisplayName("primary 커넥션 풀에 spring.datasource.hikari.* 설정이 적용된다")
+    public void primaryUsesHikariProperties() {
+        String pool = new TransactionTemplate(transactionManager)
+                .execute(status -> jdbcTemplate.queryForObject("select @pool", String.class));
+
+        assertThat(pool).isEqualTo("hikari");
+    }
+}
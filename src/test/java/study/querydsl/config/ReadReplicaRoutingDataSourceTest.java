@@ -0,0 +1,99 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.config.ReadReplicaRoutingDataSource.Strategy.LEAST_CONNECTIONS;
+import static study.querydsl.config.ReadReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+
+/**
+ * 내장 H2 인스턴스(in-memory DB) 여러 개로 라우팅을 확인한다.
+ */
+class ReadReplicaRoutingDataSourceTest {
+
+    DataSource primary = h2("primary");
+    DataSource replica1 = h2("replica1");
+    DataSource replica2 = h2("replica2");
+
+    @AfterEach
+    public void after() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("읽기 전용 트랜잭션이 아니면 primary")
+    public void primaryOutsideReadOnly() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(replica1, replica2), ROUND_ROBIN);
+
+        assertThat(databaseOf(routing)).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("읽기 전용 트랜잭션은 replica 를 round-robin 으로 사용")
+    public void roundRobin() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(replica1, replica2), ROUND_ROBIN);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(databaseOf(routing)).isEqualTo("replica1");
+        assertThat(databaseOf(routing)).isEqualTo("replica2");
+        assertThat(databaseOf(routing)).isEqualTo("replica1");
+    }
+
+    @Test
+    @DisplayName("least-connections 는 빌려간 커넥션이 적은 replica 를 사용")
+    public void leastConnections() throws SQLException {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(primary, List.of(replica1, replica2), LEAST_CONNECTIONS);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        try (Connection held = routing.getConnection()) {
+            assertThat(held.getMetaData().getURL()).contains("replica1");
+            assertThat(routing.getActiveConnections()).containsExactly(1, 0);
+            assertThat(databaseOf(routing)).isEqualTo("replica2");
+        }
+        assertThat(routing.getActiveConnections()).containsExactly(0, 0);
+        assertThat(databaseOf(routing)).isEqualTo("replica1");
+    }
+
+    @Test
+    @DisplayName("replica 에 연결할 수 없으면 다음 replica, 모두 실패하면 primary")
+    public void fallback() throws SQLException {
+        DataSource broken = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/~/nowhere", "sa", "");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(databaseOf(new ReadReplicaRoutingDataSource(primary, List.of(broken, replica2), ROUND_ROBIN))).isEqualTo("replica2");
+        assertThat(databaseOf(new ReadReplicaRoutingDataSource(primary, List.of(broken), ROUND_ROBIN))).isEqualTo("primary");
+    }
+
+    @Test
+    @DisplayName("LazyConnectionDataSourceProxy 로 감싸면 트랜잭션 시작 후 실제 커넥션을 얻는 시점에 라우팅")
+    public void lazyConnection() throws SQLException {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReadReplicaRoutingDataSource(primary, List.of(replica1), ROUND_ROBIN));
+
+        try (Connection connection = dataSource.getConnection()) {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertThat(connection.getMetaData().getURL()).contains("replica1");
+        }
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static String databaseOf(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            String url = connection.getMetaData().getURL();
+            return url.substring(url.lastIndexOf(':') + 1, url.indexOf(';') > 0 ? url.indexOf(';') : url.length());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package study.querydsl.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.statement.RepositoryStatementAspect;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.transaction.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "member.statements.capture.enabled=false")
+@Transactional
+class StatementCaptureConfigTest {
+
+    @Autowired ApplicationContext context;
+    @Autowired MemberRepository memberRepository;
+
+    @Test
+    @DisplayName("SQL 기록을 끄면 inspector 와 리포지토리 aspect 가 등록되지 않는다")
+    public void disabled() {
+        assertThat(context.getBeansOfType(RepositoryStatementAspect.class)).isEmpty();
+        assertThat(context.getBeansOfType(StatementCaptureConfig.class)).isEmpty();
+
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            memberRepository.search(new MemberSearchCondition());
+
+            assertThat(scope.getCount()).isZero();
+        }
+    }
+}
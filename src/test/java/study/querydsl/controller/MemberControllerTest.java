@@ -0,0 +1,76 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+
+    @Test
+    @DisplayName("허용되지 않은 정렬 키는 400")
+    public void unsupportedSort() throws Exception {
+        mockMvc.perform(get("/v3/members").param("sort", "teamName"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v2/members").param("sort", "nothing,desc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v3/members").param("sort", "age,desc"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("지원하지 않는 count 모드는 400")
+    public void unsupportedCountMode() throws Exception {
+        mockMvc.perform(get("/v2/members").param("count", "fast"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v3/members").param("count", "fast"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v3/members").param("count", "approximate"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("keyset 페이징 - 잘못된 size, 정렬 키, 커서는 400 이고 큰 size 는 max-page-size 로 줄인다")
+    public void keysetRequestValidation() throws Exception {
+        mockMvc.perform(get("/v4/members").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("size", "many"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("sort", "nothing"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/v4/members").param("size", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(2000));
+    }
+
+    @Test
+    @DisplayName("일괄 검색 - 조건이 batch-search.max-conditions 보다 많거나 null 이 있으면 400")
+    public void batchRequestValidation() throws Exception {
+        String tooMany = "[" + String.join(",", Collections.nCopies(101, "{}")) + "]";
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON).content(tooMany))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON).content("[{}, null]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/v1/members/batch").contentType(MediaType.APPLICATION_JSON).content("[{}, {\"ageGoe\": 20}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+}
@@ -0,0 +1,95 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberJsonStreamerTest {
+
+    @Autowired MemberJsonStreamer streamer;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired ObjectMapper objectMapper;
+    @Autowired EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        // 팀이 없는 회원은 teamId, teamName 이 null 로 나간다.
+        em.persist(new Member("member4", 40, null));
+        em.persist(new Member("\"quoted\"\n이름", 50, teamB));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("DTO 목록을 직렬화한 JSON 과 같은 JSON 을 쓴다")
+    public void sameJsonAsDto() throws Exception {
+        MemberSearchCondition all = new MemberSearchCondition();
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        MemberSearchCondition age = new MemberSearchCondition();
+        age.setAgeGoe(20);
+        age.setAgeLoe(40);
+
+        for (MemberSearchCondition condition : new MemberSearchCondition[]{all, teamB, age}) {
+            String expected = objectMapper.writeValueAsString(memberJpaRepository.search(condition));
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long rows = streamer.write(condition, out);
+
+            assertThat(out.toString(StandardCharsets.UTF_8)).as(condition.toString()).isEqualTo(expected);
+            assertThat(rows).isEqualTo(memberJpaRepository.search(condition).size());
+        }
+    }
+
+    @Test
+    @DisplayName("ObjectMapper 의 생성기 설정을 따른다 - INDENT_OUTPUT")
+    public void followsGeneratorSettings() throws Exception {
+        ObjectMapper indenting = objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT);
+        MemberJsonStreamer indentingStreamer = new MemberJsonStreamer(memberJpaRepository, indenting, 500);
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        indentingStreamer.write(condition, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo(indenting.writeValueAsString(memberJpaRepository.search(condition)));
+    }
+
+    @Test
+    @DisplayName("결과가 없으면 빈 배열을 쓴다")
+    public void emptyArray() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("nobody");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = streamer.write(condition, out);
+
+        assertThat(rows).isZero();
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+}
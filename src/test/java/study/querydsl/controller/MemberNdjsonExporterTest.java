@@ -0,0 +1,109 @@
+package study.querydsl.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberNdjsonExporterTest {
+
+    private static final long ID_OFFSET = 2_000_000L;
+
+    @Autowired EntityManager em;
+    @Autowired MemberNdjsonExporter exporter;
+    @Autowired ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("NDJSON 내보내기 - 한 줄에 회원 한 명")
+    public void exportAsNdjson() throws Exception {
+        insertMembers(3);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team1");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.export(condition, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(rows).isEqualTo(1);
+        assertThat(lines).hasSize(1);
+        MemberTeamDto dto = objectMapper.readValue(lines[0], MemberTeamDto.class);
+        assertThat(dto.getUsername()).isEqualTo("member1");
+        assertThat(dto.getTeamName()).isEqualTo("team1");
+    }
+
+    @Test
+    @DisplayName("NDJSON 내보내기 - 모두 쓴 뒤가 아니라 fetch size 마다 출력을 flush 한다")
+    public void flushEveryFetchSize() throws Exception {
+        insertMembers(2_000);
+        FlushRecordingOutputStream out = new FlushRecordingOutputStream();
+
+        long rows = exporter.export(new MemberSearchCondition(), out);
+
+        assertThat(rows).isEqualTo(2_000);
+        // member.export.fetch-size 기본값 500
+        assertThat(out.linesAtFlush).startsWith(500L, 1_000L, 1_500L, 2_000L);
+    }
+
+    @Test
+    @DisplayName("NDJSON 내보내기 - 호출한 쪽 영속성 컨텍스트의 엔티티를 detach 하지 않는다")
+    public void keepCallerEntities() throws Exception {
+        Team team = new Team("teamA");
+        em.persist(team);
+        Member member = new Member("member1", 10, team);
+        em.persist(member);
+        insertMembers(1_000);
+
+        exporter.export(new MemberSearchCondition(), new ByteArrayOutputStream());
+
+        assertThat(em.contains(member)).isTrue();
+        assertThat(em.contains(team)).isTrue();
+    }
+
+    private void insertMembers(int rows) {
+        em.createNativeQuery("insert into team (id, name) " +
+                "select x + " + ID_OFFSET + ", concat('team', x) from system_range(1, 10)")
+                .executeUpdate();
+        em.createNativeQuery("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), mod(x - 1, 10) + 1 + " + ID_OFFSET + " " +
+                "from system_range(1, " + rows + ")")
+                .executeUpdate();
+    }
+
+    /**
+     * flush 될 때마다 그때까지 출력된 줄 수를 기록한다.
+     */
+    static class FlushRecordingOutputStream extends OutputStream {
+
+        private final List<Long> linesAtFlush = new ArrayList<>();
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void flush() {
+            linesAtFlush.add(lines);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "member.batch-search.conditions-per-query=2")
+@Transactional
+class MemberBatchSearchTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50, null));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("조건마다 따로 검색한 결과와 같다")
+    public void sameAsSearch() {
+        List<MemberSearchCondition> conditions = Arrays.asList(
+                condition(null, "teamA", null, null),
+                condition(null, null, 30, null),
+                condition("member5", null, null, null),
+                condition(null, "teamB", null, 30),
+                condition(null, null, null, null));
+
+        List<List<MemberTeamDto>> results = memberRepository.searchBatch(conditions);
+
+        assertThat(results).hasSize(conditions.size());
+        for (int i = 0; i < conditions.size(); i++) {
+            assertThat(results.get(i)).usingRecursiveFieldByFieldElementComparator()
+                    .containsExactlyInAnyOrderElementsOf(memberRepository.search(conditions.get(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("여러 조건에 맞는 행은 각 조건의 결과에 모두 들어가고, 맞는 행이 없는 조건은 빈 목록이다")
+    public void rowMatchingSeveralConditions() {
+        List<List<MemberTeamDto>> results = memberRepository.searchBatch(Arrays.asList(
+                condition(null, "teamB", null, null),
+                condition(null, null, 40, null),
+                condition("nobody", null, null, null)));
+
+        assertThat(results.get(0)).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+        assertThat(results.get(1)).extracting("username").containsExactlyInAnyOrder("member4", "member5");
+        assertThat(results.get(2)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("조건 conditions-per-query 개마다 쿼리 하나를 실행한다")
+    public void queriesPerChunk() {
+        List<MemberSearchCondition> conditions = Arrays.asList(
+                condition(null, "teamA", null, null),
+                condition(null, "teamB", null, null),
+                condition(null, null, 40, null));
+        // 팀 이름 -> id 사전을 미리 읽어 둔다.
+        memberRepository.searchBatch(conditions);
+
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            memberRepository.searchBatch(conditions);
+
+            assertThat(scope.getCount()).isEqualTo(2);
+            assertThat(scope.getStatements().get(0)).containsIgnoringCase("case when");
+        }
+    }
+
+    @Test
+    @DisplayName("조건이 없으면 쿼리를 실행하지 않는다")
+    public void empty() {
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            assertThat(memberRepository.searchBatch(Collections.emptyList())).isEmpty();
+            assertThat(scope.getCount()).isZero();
+        }
+    }
+
+    private MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,52 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * MemberBulkLoader 는 chunk 마다 커밋하므로 테스트가 끝나면 직접 지운다.
+ * id 는 시퀀스로 만들어지므로 고정된 ID_OFFSET 대신 시작 전의 최대 id 보다 큰 행만 이 테스트가 저장한 것으로 보고 지운다.
+ */
+@SpringBootTest(properties = "member.bulk-load.chunk-size=100")
+class MemberBulkLoaderTest {
+
+    @Autowired MemberBulkLoader loader;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    long memberIdOffset;
+    long teamIdOffset;
+
+    @BeforeEach
+    public void before() {
+        memberIdOffset = jdbcTemplate.queryForObject("select coalesce(max(member_id), 0) from member", Long.class);
+        teamIdOffset = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from team", Long.class);
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where member_id > ?", memberIdOffset);
+        jdbcTemplate.update("delete from team where id > ?", teamIdOffset);
+    }
+
+    @Test
+    @DisplayName("chunk 단위 대량 저장")
+    public void load() {
+        MemberBulkLoader.Result result = loader.load(3, 1_050);
+
+        assertThat(result.getMembers()).isEqualTo(1_050);
+        assertThat(result.getRowsPerSecond()).isPositive();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member where member_id > ?",
+                Long.class, memberIdOffset)).isEqualTo(1_050);
+        assertThat(jdbcTemplate.queryForObject("select count(distinct team_id) from member where member_id > ?",
+                Long.class, memberIdOffset)).isEqualTo(3);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from team where id > ?",
+                Long.class, teamIdOffset)).isEqualTo(3);
+    }
+}
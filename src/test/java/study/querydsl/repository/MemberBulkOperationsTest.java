@@ -0,0 +1,170 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeHandler;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * chunk 마다 커밋하므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest(properties = "member.bulk-update.chunk-size=2")
+class MemberBulkOperationsTest {
+
+    @Autowired MemberBulkOperations bulkOperations;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired BulkChanges bulkChanges;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnlyTx;
+    List<Long> ids;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        ids = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            List<Long> saved = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                Member m = new Member("member" + i, i * 10, teamA);
+                em.persist(m);
+                saved.add(m.getId());
+            }
+            em.flush();
+            return saved;
+        });
+        bulkChanges.clear();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+    }
+
+    @Test
+    @DisplayName("조건에 맞는 행을 chunk 단위로 update 한다")
+    public void updateInChunks() {
+        MemberBulkOperations.Result result = bulkOperations.update(member.age.goe(20),
+                update -> update.set(member.age, member.age.add(1)));
+
+        assertThat(result.getRows()).isEqualTo(4);
+        assertThat(result.getChunks()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForList("select age from member order by member_id", Integer.class))
+                .containsExactly(10, 21, 31, 41, 51);
+    }
+
+    @Test
+    @DisplayName("벌크 변경 이벤트는 chunk 수와 관계없이 한 번만 보낸다")
+    public void publishOnceAfterLastChunk() {
+        MemberBulkOperations.Result result = bulkOperations.delete(member.age.goe(20));
+
+        assertThat(result.getChunks()).isEqualTo(2);
+        assertThat(bulkChanges).singleElement().extracting(EntityChange::getType).isEqualTo(EntityChange.Type.BULK);
+    }
+
+    @Test
+    @DisplayName("조건에 맞는 행이 없으면 이벤트를 보내지 않는다")
+    public void noEventWithoutRows() {
+        assertThat(bulkOperations.delete(member.age.gt(100)).getChunks()).isZero();
+        assertThat(bulkChanges).isEmpty();
+    }
+
+    @Test
+    @DisplayName("읽기 전용 트랜잭션 안에서 호출하면 영향을 받은 Member 만 영속성 컨텍스트에서 제거한다")
+    public void evictOnlyAffected() {
+        readOnlyTx.executeWithoutResult(status -> {
+            Member untouched = em.find(Member.class, ids.get(0));
+            Member updated = em.find(Member.class, ids.get(2));
+
+            bulkOperations.update(member.age.goe(20), update -> update.set(member.username, "비회원"));
+
+            assertThat(em.contains(untouched)).isTrue();
+            assertThat(em.contains(updated)).isFalse();
+            assertThat(em.find(Member.class, ids.get(2)).getUsername()).isEqualTo("비회원");
+        });
+    }
+
+    @Test
+    @DisplayName("삭제된 Member 는 로딩된 Team.members 에서도 빠진다")
+    public void deleteInChunks() {
+        readOnlyTx.executeWithoutResult(status -> {
+            Member remaining = em.find(Member.class, ids.get(0));
+            Team team = remaining.getTeam();
+            assertThat(team.getMembers()).hasSize(5);
+
+            MemberBulkOperations.Result result = bulkOperations.delete(member.age.gt(18));
+
+            assertThat(result.getRows()).isEqualTo(4);
+            assertThat(result.getChunks()).isEqualTo(2);
+            assertThat(team.getMembers()).containsExactly(remaining);
+        });
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member", Long.class)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("쓰는 트랜잭션 안에서 호출하면 실패하고 flush 되지 않은 변경은 그대로 남는다")
+    public void rejectInWriteTransaction() {
+        tx.executeWithoutResult(status -> {
+            Member changed = em.find(Member.class, ids.get(2));
+            changed.setAge(99);
+
+            assertThatThrownBy(() -> bulkOperations.update(member.age.goe(20),
+                    update -> update.set(member.username, "비회원")))
+                    .isInstanceOf(IllegalStateException.class);
+
+            assertThat(em.contains(changed)).isTrue();
+        });
+        assertThat(jdbcTemplate.queryForObject("select age from member where member_id = ?", Integer.class, ids.get(2)))
+                .isEqualTo(99);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member where username = '비회원'", Long.class))
+                .isZero();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        BulkChanges bulkChanges() {
+            return new BulkChanges();
+        }
+    }
+
+    /**
+     * 커밋된 벌크 변경 이벤트를 모은다.
+     */
+    static class BulkChanges extends CopyOnWriteArrayList<EntityChange> implements EntityChangeHandler {
+
+        @Override
+        public void afterCompletion(EntityChange change, boolean committed) {
+            if (committed && change.getType() == EntityChange.Type.BULK) {
+                add(change);
+            }
+        }
+    }
+}
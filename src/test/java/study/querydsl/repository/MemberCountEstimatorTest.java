@@ -0,0 +1,187 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.cache.TeamIdCache;
+import study.querydsl.repository.memory.MemberBitmapIndex;
+import study.querydsl.repository.support.CountEstimate;
+import study.querydsl.repository.support.EstimatedPage;
+
+import javax.persistence.EntityManager;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * JdbcTemplate 로 넣은 데이터를 세므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class MemberCountEstimatorTest {
+
+    private static final long ID_OFFSET = 7_000_000L;
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberBitmapIndex bitmapIndex;
+    @Autowired MemberCountCache countCache;
+    @Autowired TeamIdCache teamIdCache;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    MemberCountEstimator estimator;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (id, name) values (?, 'teamA'), (?, 'teamB')",
+                ID_OFFSET + 1, ID_OFFSET + 2);
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), mod(x, 2) + 1 + " + ID_OFFSET + " " +
+                "from system_range(1, 5000)");
+        countCache.invalidateAll();
+        estimator = estimator(42);
+    }
+
+    @AfterEach
+    public void after() {
+        countCache.invalidateAll();
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        // JdbcTemplate 로 지운 팀은 이벤트가 없다.
+        teamIdCache.invalidate();
+    }
+
+    @Test
+    @DisplayName("표본 추정값은 정확한 count 와 오차 한계 안에서 일치한다")
+    public void estimateWithinBound() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+
+        CountEstimate estimate = estimator.estimate(condition, countQuery(condition));
+
+        long exact = countQuery(condition).fetchOne();
+        assertThat(exact).isEqualTo(2000);
+        assertThat(estimate.isExact()).isFalse();
+        assertThat(estimate.getErrorBound()).isPositive();
+        assertThat(Math.abs(estimate.getValue() - exact)).isLessThanOrEqualTo(estimate.getErrorBound());
+    }
+
+    @Test
+    @DisplayName("여러 seed 로 추정해도 정확한 count 가 오차 한계 안에 드는 비율은 90% 이상이다 - 95% 신뢰구간")
+    public void coverageOverSeeds() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+
+        int runs = 100;
+        int covered = 0;
+        for (int seed = 0; seed < runs; seed++) {
+            CountEstimate estimate = estimator(seed).estimate(condition, countQuery(condition));
+            if (Math.abs(estimate.getValue() - 2000) <= estimate.getErrorBound()) {
+                covered++;
+            }
+        }
+        assertThat(covered).isGreaterThanOrEqualTo(90);
+    }
+
+    @Test
+    @DisplayName("window 가 겹치지 않고 id 범위 전체를 덮으면 한 번씩만 세어 정확한 값을 돌려준다")
+    public void windowsCoverAllIds() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+        // 층 하나(1250 행)를 window 하나가 덮는다.
+        Random random = new Random(42);
+        MemberCountEstimator covering = new MemberCountEstimator(em, bitmapIndex, countCache, 4999, 4, () -> random);
+
+        CountEstimate estimate = covering.estimate(condition, countQuery(condition));
+
+        assertThat(estimate.isExact()).isTrue();
+        assertThat(estimate.getValue()).isEqualTo(2000);
+    }
+
+    @Test
+    @DisplayName("username 조건이 있으면 정확히 센다")
+    public void usernameIsExact() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member10");
+
+        CountEstimate estimate = estimator.estimate(condition, countQuery(condition));
+
+        assertThat(estimate.isExact()).isTrue();
+        assertThat(estimate.getValue()).isEqualTo(1);
+        assertThat(estimate.getErrorBound()).isZero();
+    }
+
+    @Test
+    @DisplayName("count 모드를 지정하지 않으면 total 은 정확한 값이다")
+    public void exactByDefault() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+
+        EstimatedPage<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10),
+                CountMode.from(null));
+
+        assertThat(page.isApproximate()).isFalse();
+        assertThat(page.getTotalElements()).isEqualTo(2000);
+        assertThat(page.getTotalErrorBound()).isZero();
+    }
+
+    @Test
+    @DisplayName("approximate 모드의 페이지는 추정 여부와 오차 한계를 함께 돌려준다")
+    public void approximatePage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(59);
+
+        EstimatedPage<MemberTeamDto> page = memberRepository.searchPageSimple(condition, PageRequest.of(0, 10),
+                CountMode.APPROXIMATE);
+
+        assertThat(page.getContent()).hasSize(10);
+        // 기본 표본 크기(10000)보다 데이터가 적으면 정확히 센다.
+        assertThat(page.isApproximate()).isFalse();
+        assertThat(page.getTotalElements()).isEqualTo(2000);
+    }
+
+    @Test
+    @DisplayName("지원하지 않는 count 모드는 거부한다")
+    public void unsupportedMode() {
+        assertThatThrownBy(() -> CountMode.from("fast"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 표본 1000 행(250 행 window 4 개)으로 5000 행을 추정한다.
+     */
+    private MemberCountEstimator estimator(long seed) {
+        Random random = new Random(seed);
+        return new MemberCountEstimator(em, bitmapIndex, countCache, 1000, 4, () -> random);
+    }
+
+    private JPAQuery<Long> countQuery(MemberSearchCondition condition) {
+        JPAQuery<Long> query = new JPAQueryFactory(em).select(member.count()).from(member);
+        if (condition.getUsername() != null) {
+            query.where(member.username.eq(condition.getUsername()));
+        }
+        if (condition.getAgeGoe() != null) {
+            query.where(member.age.goe(condition.getAgeGoe()));
+        }
+        if (condition.getAgeLoe() != null) {
+            query.where(member.age.loe(condition.getAgeLoe()));
+        }
+        return query;
+    }
+}
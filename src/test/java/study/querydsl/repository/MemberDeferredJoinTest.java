@@ -0,0 +1,86 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "member.deferred-join.offset-threshold=2")
+@Transactional
+class MemberDeferredJoinTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 1; i <= 6; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+        }
+        em.persist(new Member("member7", 70, null));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("offset 이 기준 이상이면 id 를 먼저 고르고 그 id 들의 행만 조인해서 읽는다")
+    public void deferredJoin() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+
+            assertThat(page.getContent()).extracting("username").containsExactly("member4", "member5");
+            assertThat(page.getContent()).extracting("teamName").containsExactly("teamA", "teamB");
+            assertThat(page.getTotalElements()).isEqualTo(6);
+            // id 조회, 행 조회, count
+            assertThat(scope.getCount()).isEqualTo(3);
+            assertThat(scope.getStatements().get(0)).doesNotContainIgnoringCase("join");
+            assertThat(scope.getStatements().get(1)).containsIgnoringCase("join").containsIgnoringCase(" in (");
+        }
+    }
+
+    @Test
+    @DisplayName("offset 이 기준보다 작으면 한 번에 조인해서 읽고 결과는 같은 순서다")
+    public void sameOrderBelowThreshold() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        Page<MemberTeamDto> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        Page<MemberTeamDto> deferred = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+        Page<MemberTeamDto> last = memberRepository.searchPageComplex(condition, PageRequest.of(3, 2));
+
+        assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+        assertThat(deferred.getContent()).extracting("username").containsExactly("member3", "member4");
+        // 팀이 없는 회원도 빠지지 않는다.
+        assertThat(last.getContent()).extracting("username").containsExactly("member7");
+        assertThat(last.getContent().get(0).getTeamName()).isNull();
+    }
+
+    @Test
+    @DisplayName("범위를 벗어난 깊은 페이지는 빈 페이지다")
+    public void beyondLastPage() {
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(10, 2));
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isEqualTo(7);
+    }
+}
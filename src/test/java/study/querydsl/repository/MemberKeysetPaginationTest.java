@@ -0,0 +1,116 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.KeysetCursor;
+import study.querydsl.repository.support.KeysetPage;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class MemberKeysetPaginationTest {
+
+    private static final int PAGE_SIZE = 10;
+    private static final int DEEP_PAGE = 10_000;
+    private static final long ROWS = (long) PAGE_SIZE * DEEP_PAGE + PAGE_SIZE;
+    private static final long ID_OFFSET = 1_000_000L;
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+
+    @BeforeEach
+    public void before() {
+        em.createNativeQuery("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), null " +
+                "from system_range(1, " + ROWS + ")")
+                .executeUpdate();
+    }
+
+    @Test
+    @DisplayName("keyset 페이징 - 커서로 이어서 조회")
+    public void continueWithCursor() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(10);
+
+        List<MemberTeamDto> visited = new ArrayList<>();
+        String cursor = null;
+        for (int i = 0; i < 3; i++) {
+            KeysetPage<MemberTeamDto> page = memberRepository.searchKeyset(condition, MemberKeysetSort.AGE, cursor, PAGE_SIZE);
+            assertThat(page.getContent()).hasSize(PAGE_SIZE);
+            assertThat(page.isHasNext()).isTrue();
+            visited.addAll(page.getContent());
+            cursor = page.getNextCursor();
+        }
+
+        assertThat(visited).extracting("age").containsOnly(10);
+        assertThat(visited).extracting("memberId").isSorted().doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("keyset 페이징 - 마지막 페이지에는 다음 커서가 없다")
+    public void lastPage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        long lastId = ID_OFFSET + ROWS;
+        String cursor = new KeysetCursor("id", String.valueOf(lastId - 3), lastId - 3).encode();
+
+        KeysetPage<MemberTeamDto> page = memberRepository.searchKeyset(condition, MemberKeysetSort.ID, cursor, PAGE_SIZE);
+
+        assertThat(page.getContent()).extracting("memberId").containsExactly(lastId - 2, lastId - 1, lastId);
+        assertThat(page.isHasNext()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("keyset 페이징 - 다른 정렬로 발급된 커서는 거부")
+    public void rejectCursorOfOtherSort() {
+        String cursor = new KeysetCursor("id", "1", 1L).encode();
+
+        assertThatThrownBy(() -> memberRepository.searchKeyset(new MemberSearchCondition(), MemberKeysetSort.AGE, cursor, PAGE_SIZE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> memberRepository.searchKeyset(new MemberSearchCondition(), MemberKeysetSort.ID, "not-a-cursor", PAGE_SIZE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("keyset 페이징 - 깊은 페이지도 offset 없이 (member.id > 커서) 로 seek 한다")
+    public void seekWithoutOffset() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        long deepId = ID_OFFSET + (long) (DEEP_PAGE - 1) * PAGE_SIZE;
+        String deepCursor = new KeysetCursor("id", String.valueOf(deepId), deepId).encode();
+
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            KeysetPage<MemberTeamDto> deepPage = memberRepository.searchKeyset(condition, MemberKeysetSort.ID, deepCursor, PAGE_SIZE);
+
+            assertThat(deepPage.getContent()).extracting("memberId").first().isEqualTo(deepId + 1);
+            assertThat(scope.getStatements()).singleElement().asString()
+                    .contains(".member_id>?")
+                    .containsIgnoringCase("limit ?")
+                    .doesNotContainIgnoringCase("offset");
+        }
+    }
+
+    @Test
+    @DisplayName("keyset 페이징 - size 가 Integer.MAX_VALUE 여도 limit(size + 1) 이 넘치지 않는다")
+    public void maxSize() {
+        KeysetPage<MemberTeamDto> page = memberRepository.searchKeyset(
+                new MemberSearchCondition(), MemberKeysetSort.ID, null, Integer.MAX_VALUE);
+
+        assertThat(page.getContent()).hasSize((int) ROWS);
+        assertThat(page.isHasNext()).isFalse();
+    }
+}
@@ -0,0 +1,110 @@
+package study.querydsl.repository;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest(properties = {
+        "member.multi-get.chunk-size=4",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional
+class MemberMultiGetTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+
+    List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 1; i <= 7; i++) {
+            Member m = new Member("member" + i, i * 10, i % 2 == 0 ? teamA : null);
+            em.persist(m);
+            ids.add(m.getId());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("입력 순서대로 돌려주고, 없는 id 는 빼고, 중복된 id 는 자리마다 넣는다")
+    public void keepsInputOrder() {
+        List<MemberTeamDto> result = memberRepository.searchByIds(
+                Arrays.asList(ids.get(4), ids.get(0), -1L, ids.get(2), ids.get(0), ids.get(1)));
+
+        assertThat(result).extracting("username")
+                .containsExactly("member5", "member1", "member3", "member1", "member2");
+        assertThat(result).extracting("teamName")
+                .containsExactly(null, null, null, null, "teamA");
+    }
+
+    @Test
+    @DisplayName("chunk-size 개씩 나눠 조회하고 IN 목록을 2의 거듭제곱 크기로 채운다")
+    public void chunksAndPadding() {
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            List<MemberTeamDto> result = memberRepository.searchByIds(ids);
+
+            assertThat(result).extracting("username").containsExactly(
+                    "member1", "member2", "member3", "member4", "member5", "member6", "member7");
+            // 4 + 3(-> 4)
+            assertThat(scope.getCount()).isEqualTo(2);
+            assertThat(scope.getStatements()).allSatisfy(sql -> assertThat(parameters(sql)).isEqualTo(4));
+        }
+    }
+
+    @Test
+    @DisplayName("in_clause_parameter_padding 이 켜져 있으면 id 개수가 달라도 쿼리 플랜 캐시를 재사용한다")
+    public void planCacheHits() {
+        assertThat(em.getEntityManagerFactory().getProperties())
+                .containsEntry("hibernate.query.in_clause_parameter_padding", "true");
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        // 크기 4 인 IN 목록의 플랜을 만들어 둔다.
+        memberRepository.searchByIds(ids.subList(0, 4));
+        statistics.clear();
+
+        memberRepository.searchByIds(ids.subList(0, 3));
+        memberRepository.searchByIds(ids.subList(2, 5));
+        memberRepository.searchByIds(ids.subList(3, 7));
+
+        assertThat(statistics.getQueryPlanCacheMissCount()).isZero();
+        assertThat(statistics.getQueryPlanCacheHitCount()).isPositive();
+
+        // 리포지토리를 거치지 않는 쿼리도 같다 - 5, 6, 7 개는 모두 8 개로 채워진다.
+        JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+        queryFactory.select(member.id).from(member).where(member.id.in(ids.subList(0, 5))).fetch();
+        statistics.clear();
+        for (int size = 6; size <= 7; size++) {
+            queryFactory.select(member.id).from(member).where(member.id.in(ids.subList(0, size))).fetch();
+        }
+        assertThat(statistics.getQueryPlanCacheMissCount()).isZero();
+    }
+
+    /**
+     * 바인딩 파라미터 수 - use_sql_comments 로 붙는 JPQL 주석은 뺀다.
+     */
+    private static long parameters(String sql) {
+        return sql.replaceAll("(?s)/\\*.*?\\*/", "").chars().filter(c -> c == '?').count();
+    }
+}
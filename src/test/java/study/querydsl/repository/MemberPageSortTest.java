@@ -0,0 +1,126 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.data.domain.Sort.Order.asc;
+import static org.springframework.data.domain.Sort.Order.desc;
+import static study.querydsl.entity.QMember.member;
+
+@SpringBootTest
+@Transactional
+class MemberPageSortTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 30, teamB));
+        em.persist(new Member("member2", 10, teamB));
+        em.persist(new Member("member3", 20, teamA));
+        em.persist(new Member("member4", 40, teamA));
+        em.persist(new Member("member5", 20, teamA));
+    }
+
+    @Test
+    @DisplayName("정렬이 없으면 member.id 순서다")
+    public void unsorted() {
+        assertThat(usernames(Sort.unsorted()))
+                .containsExactly("member1", "member2", "member3", "member4", "member5");
+    }
+
+    @Test
+    @DisplayName("memberId 역순 정렬")
+    public void memberIdDesc() {
+        assertThat(usernames(Sort.by(desc("memberId"))))
+                .containsExactly("member5", "member4", "member3", "member2", "member1");
+    }
+
+    @Test
+    @DisplayName("username 역순 정렬")
+    public void usernameDesc() {
+        assertThat(usernames(Sort.by(desc("username"))))
+                .containsExactly("member5", "member4", "member3", "member2", "member1");
+    }
+
+    @Test
+    @DisplayName("age 정렬 - 나이가 같으면 member.id 순서다")
+    public void age() {
+        assertThat(usernames(Sort.by(asc("age"))))
+                .containsExactly("member2", "member3", "member5", "member1", "member4");
+    }
+
+    @Test
+    @DisplayName("age 역순 정렬 - 나이가 같으면 member.id 도 역순이다")
+    public void ageDesc() {
+        assertThat(usernames(Sort.by(desc("age"))))
+                .containsExactly("member4", "member1", "member5", "member3", "member2");
+        // (age, member_id) 인덱스를 한 방향으로 읽을 수 있도록 방향을 섞지 않는다.
+        assertThat(MemberPageSort.orders(Sort.by(desc("age"))))
+                .containsExactly(member.age.desc(), member.id.desc());
+        assertThat(MemberPageSort.orders(Sort.by(asc("username"))))
+                .containsExactly(member.username.asc(), member.id.asc());
+    }
+
+    @Test
+    @DisplayName("searchPageSimple 도 같은 정렬을 따른다")
+    public void searchPageSimple() {
+        List<MemberTeamDto> content = memberRepository.searchPageSimple(new MemberSearchCondition(),
+                PageRequest.of(0, 10, Sort.by(desc("age")))).getContent();
+
+        assertThat(content).extracting("username")
+                .containsExactly("member4", "member1", "member5", "member3", "member2");
+    }
+
+    @Test
+    @DisplayName("인덱스로 정렬할 수 없는 조합은 허용되는 앞부분만 남긴다")
+    public void downgrade() {
+        assertThat(MemberPageSort.supported(Sort.by(asc("username"), asc("age"))))
+                .containsExactly(asc("username"));
+        assertThat(MemberPageSort.supported(Sort.by(asc("age"), asc("memberId"))))
+                .containsExactly(asc("age"));
+
+        // age 다음 username 은 버려지고 나이가 같으면 member.id 순서다.
+        assertThat(usernames(Sort.by(asc("age"), desc("username"))))
+                .containsExactly("member2", "member3", "member5", "member1", "member4");
+    }
+
+    @Test
+    @DisplayName("알 수 없는 정렬 키와 조인한 테이블의 정렬 키는 거부한다")
+    public void unknownKey() {
+        assertThatThrownBy(() -> MemberPageSort.orders(Sort.by("teamId")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("teamId");
+        assertThatThrownBy(() -> MemberPageSort.orders(Sort.by("teamName")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("teamName");
+    }
+
+    private List<String> usernames(Sort sort) {
+        List<MemberTeamDto> content = memberRepository.searchPageComplex(new MemberSearchCondition(),
+                PageRequest.of(0, 10, sort)).getContent();
+        return content.stream().map(MemberTeamDto::getUsername).collect(toList());
+    }
+}
@@ -0,0 +1,149 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 여러 스레드에서 커밋된 데이터를 읽으므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class MemberSearchCoalescingTest {
+
+    private static final long ID_OFFSET = 8_000_000L;
+    private static final int CALLERS = 8;
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberSearchCoalescer coalescer;
+    @Autowired MemberSelectGate gate;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into member (member_id, username, age) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), x from system_range(1, 10)");
+    }
+
+    @AfterEach
+    public void after() {
+        gate.close();
+        jdbcTemplate.update("delete from member where member_id > ?", ID_OFFSET);
+    }
+
+    @Test
+    @DisplayName("같은 조건으로 동시에 호출하면 SQL 은 한 번만 실행되고 모두 같은 결과를 받는다")
+    public void oneSqlForConcurrentCallers() throws Exception {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+        long coalescedBefore = coalescer.getCoalesced();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            // 첫 번째 호출의 SQL 을 붙잡아 두고 나머지 호출이 모두 합류하면 놓아준다.
+            gate.hold();
+            List<Future<List<MemberTeamDto>>> results = new ArrayList<>();
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(() -> memberRepository.search(condition)));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalescer.getCoalesced() - coalescedBefore < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            gate.release();
+
+            List<MemberTeamDto> first = results.get(0).get(5, TimeUnit.SECONDS);
+            assertThat(first).hasSize(6);
+            for (Future<List<MemberTeamDto>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(gate.memberSelects.get()).isEqualTo(1);
+        assertThat(coalescer.getCoalesced() - coalescedBefore).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    @DisplayName("조건이 다르면 합치지 않는다")
+    public void differentConditions() {
+        MemberSearchCondition young = new MemberSearchCondition();
+        young.setAgeLoe(3);
+        MemberSearchCondition old = new MemberSearchCondition();
+        old.setAgeGoe(8);
+
+        assertThat(memberRepository.search(young)).hasSize(3);
+        assertThat(memberRepository.search(old)).hasSize(3);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MemberSelectGate memberSelectGate() {
+            return new MemberSelectGate();
+        }
+    }
+
+    /**
+     * hold 중에는 member 를 조회하는 SQL 을 세고 release 될 때까지 실행 직전에 붙잡아 둔다.
+     */
+    static class MemberSelectGate extends SimpleJdbcEventListener {
+
+        final AtomicInteger memberSelects = new AtomicInteger();
+        private volatile CountDownLatch latch;
+
+        void hold() {
+            memberSelects.set(0);
+            latch = new CountDownLatch(1);
+        }
+
+        void release() {
+            latch.countDown();
+        }
+
+        void close() {
+            CountDownLatch current = latch;
+            latch = null;
+            if (current != null) {
+                current.countDown();
+            }
+        }
+
+        @Override
+        public void onBeforeAnyExecute(StatementInformation statementInformation) {
+            CountDownLatch current = latch;
+            String sql = statementInformation.getSql();
+            if (current == null || sql == null || !sql.toLowerCase().contains("from member")) {
+                return;
+            }
+            memberSelects.incrementAndGet();
+            try {
+                current.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
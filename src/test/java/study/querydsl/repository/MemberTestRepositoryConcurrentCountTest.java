@@ -0,0 +1,116 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.statement.RepositoryCall;
+import study.querydsl.repository.support.statement.RepositoryCallListener;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 별도 커넥션에서 실행되는 count 쿼리가 데이터를 볼 수 있도록 테스트 데이터를 커밋하고, 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class MemberTestRepositoryConcurrentCountTest {
+
+    private static final long ID_OFFSET = 3_000_000L;
+    private static final int ROWS = 200_000;
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MemberTestRepository memberTestRepository;
+    @Autowired LastCall calls;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (id, name) values (?, ?)", ID_OFFSET + 1, "teamA");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), " + (ID_OFFSET + 1) + " " +
+                "from system_range(1, " + ROWS + ")");
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member where member_id > ?", ID_OFFSET);
+        jdbcTemplate.update("delete from team where id > ?", ID_OFFSET);
+    }
+
+    @Test
+    @DisplayName("count 동시 실행 - 순차 실행과 같은 결과")
+    public void sameResultAsSequential() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(10);
+        PageRequest pageRequest = PageRequest.of(3, 20);
+
+        Page<Member> sequential = memberTestRepository.applyPagination2(condition, pageRequest);
+        Page<Member> concurrent = memberTestRepository.applyPaginationConcurrently(condition, pageRequest);
+
+        assertThat(concurrent.getTotalElements()).isEqualTo(sequential.getTotalElements());
+        assertThat(concurrent.getContent()).extracting("id")
+                .containsExactlyElementsOf(sequential.getContent().stream().map(Member::getId).collect(toList()));
+    }
+
+    @Test
+    @DisplayName("count 동시 실행 - count 가 필요 없는 페이지는 count 결과를 기다리지 않는다")
+    public void skipCountOnLastPage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+
+        Page<Member> page = memberTestRepository.applyPaginationConcurrently(condition, PageRequest.of(0, 20));
+
+        assertThat(page.getTotalElements()).isEqualTo(1);
+        RepositoryCall call = calls.last();
+        assertThat(call.getPhases()).extracting("name").containsExactly("content");
+        assertThat(call.getScope().getStatements()).singleElement().asString().doesNotContain("count(");
+    }
+
+    @Test
+    @DisplayName("count 동시 실행 - count 가 필요하면 다른 커넥션에서 실행한 결과를 기다린다")
+    public void awaitCountOnMiddlePage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<Member> page = memberTestRepository.applyPaginationConcurrently(condition, PageRequest.of(2, 20));
+
+        assertThat(page.getTotalElements()).isEqualTo(ROWS);
+        RepositoryCall call = calls.last();
+        assertThat(call.getPhases()).extracting("name").containsExactly("content", "count");
+        // count 쿼리는 count 실행기 스레드에서 실행되므로 이 호출의 SQL 은 content 쿼리뿐이다.
+        assertThat(call.getScope().getStatements()).singleElement().asString().doesNotContain("count(");
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        LastCall lastCall() {
+            return new LastCall();
+        }
+    }
+
+    static class LastCall implements RepositoryCallListener {
+
+        private volatile RepositoryCall last;
+
+        @Override
+        public void afterCall(RepositoryCall call) {
+            last = call;
+        }
+
+        RepositoryCall last() {
+            return last;
+        }
+    }
+}
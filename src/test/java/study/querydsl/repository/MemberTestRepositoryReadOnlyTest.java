@@ -0,0 +1,102 @@
+package study.querydsl.repository;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryReadOnlyTest {
+
+    @Autowired MemberTestRepository memberTestRepository;
+    @Autowired EntityManager em;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @DisplayName("읽기 전용으로 조회한 엔티티는 수정해도 flush 되지 않는다")
+    public void notDirtyChecked() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+
+        Member found = memberTestRepository.readSelectFrom(condition).get(0);
+        assertThat(em.unwrap(Session.class).isReadOnly(found)).isTrue();
+
+        found.setAge(99);
+        em.flush();
+        em.clear();
+
+        assertThat(em.find(Member.class, found.getId()).getAge()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("일반 조회한 엔티티는 수정하면 flush 된다")
+    public void dirtyCheckedByDefault() {
+        Member found = memberTestRepository.basicSelectFrom().stream()
+                .filter(m -> m.getUsername().equals("member1"))
+                .findFirst()
+                .orElseThrow();
+        assertThat(em.unwrap(Session.class).isReadOnly(found)).isFalse();
+
+        found.setAge(99);
+        em.flush();
+        em.clear();
+
+        assertThat(em.find(Member.class, found.getId()).getAge()).isEqualTo(99);
+    }
+
+    @Test
+    @DisplayName("읽기 전용 조회는 실행 전에 flush 하지 않는다")
+    public void noAutoFlush() {
+        em.persist(new Member("member4", 40));
+
+        List<Member> readOnly = memberTestRepository.readSelectFrom(new MemberSearchCondition());
+        assertThat(readOnly).extracting("username").doesNotContain("member4");
+
+        List<Member> flushed = memberTestRepository.basicSelectFrom();
+        assertThat(flushed).extracting("username").contains("member4");
+    }
+
+    @Test
+    @DisplayName("읽기 전용 페이징은 일반 페이징과 같은 결과다")
+    public void readPagination() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        PageRequest pageRequest = PageRequest.of(1, 2);
+
+        Page<Member> page = memberTestRepository.applyPagination(condition, pageRequest);
+        // 이미 영속성 컨텍스트에 있는 엔티티는 읽기 전용 힌트와 관계없이 그대로 돌려준다.
+        em.clear();
+        Page<Member> readOnly = memberTestRepository.applyReadPagination(condition, pageRequest);
+
+        assertThat(readOnly.getTotalElements()).isEqualTo(page.getTotalElements()).isEqualTo(3);
+        assertThat(readOnly.getContent()).extracting("username")
+                .containsExactlyElementsOf(page.getContent().stream().map(Member::getUsername)
+                        .collect(toList()));
+        assertThat(readOnly.getContent()).allMatch(m -> em.unwrap(Session.class).isReadOnly(m));
+    }
+}
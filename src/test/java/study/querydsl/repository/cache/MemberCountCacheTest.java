@@ -0,0 +1,129 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 읽기 전용 트랜잭션에서만 캐시를 쓰므로 데이터를 커밋해 두고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class MemberCountCacheTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberCountCache countCache;
+    @Autowired TeamIdCache teamIdCache;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate tx;
+    TransactionTemplate readOnlyTx;
+    Long teamAId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            teamAId = teamA.getId();
+        });
+        countCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        teamIdCache.invalidate();
+        countCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("같은 조건의 count 는 캐시에서 가져온다")
+    public void hitForNormalizedCondition() {
+        MemberSearchCondition condition = teamA();
+        MemberSearchCondition blankUsername = teamA();
+        blankUsername.setUsername(" ");
+
+        CacheStats before = countCache.stats();
+        Page<MemberTeamDto> first = readOnlyTx.execute(status ->
+                memberRepository.searchPageComplex(condition, PageRequest.of(1, 1)));
+        Page<MemberTeamDto> second = readOnlyTx.execute(status ->
+                memberRepository.searchPageComplex(blankUsername, PageRequest.of(1, 1)));
+        CacheStats after = countCache.stats();
+
+        assertThat(first.getTotalElements()).isEqualTo(2);
+        assertThat(second.getTotalElements()).isEqualTo(2);
+        assertThat(after.getMisses() - before.getMisses()).isEqualTo(1);
+        assertThat(after.getHits() - before.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Member 저장 시 count 캐시가 무효화된다")
+    public void invalidateOnMemberInsert() {
+        assertThat(readOnlyCount(teamA())).isEqualTo(2);
+
+        tx.executeWithoutResult(status -> em.persist(new Member("member5", 50, em.find(Team.class, teamAId))));
+
+        assertThat(readOnlyCount(teamA())).isEqualTo(3);
+        assertThat(countCache.stats().getInvalidations()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("쓰기 트랜잭션은 캐시를 쓰지 않는다 - 롤백된 변경으로 센 값이 남지 않는다")
+    public void bypassInWriteTransaction() {
+        CacheStats before = countCache.stats();
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 50, em.find(Team.class, teamAId)));
+            em.flush();
+
+            assertThat(memberRepository.searchPageComplex(teamA(), PageRequest.of(1, 1)).getTotalElements())
+                    .isEqualTo(3);
+            status.setRollbackOnly();
+        });
+        CacheStats after = countCache.stats();
+
+        assertThat(after.getMisses() - before.getMisses()).isZero();
+        assertThat(after.getHits() - before.getHits()).isZero();
+        assertThat(readOnlyCount(teamA())).isEqualTo(2);
+    }
+
+    private long readOnlyCount(MemberSearchCondition condition) {
+        return readOnlyTx.execute(status ->
+                memberRepository.searchPageComplex(condition, PageRequest.of(1, 1)).getTotalElements());
+    }
+
+    private MemberSearchCondition teamA() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        return condition;
+    }
+}
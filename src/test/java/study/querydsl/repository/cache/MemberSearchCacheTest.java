@@ -0,0 +1,243 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberBulkOperations;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.event.EntityChangeHandler;
+import study.querydsl.repository.memory.MemberColumnStore;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+/**
+ * 커밋된 변경으로 무효화되는지 보므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest(properties = "member.search-cache.enabled=true")
+class MemberSearchCacheTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberSearchCache searchCache;
+    @Autowired MemberCountCache countCache;
+    @Autowired TeamIdCache teamIdCache;
+    @Autowired MemberBulkOperations bulkOperations;
+    @Autowired MemberColumnStore columnStore;
+    @Autowired ObjectProvider<EntityChangeHandler> handlers;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate tx;
+    Long teamBId;
+    Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+        searchCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        columnStore.discard();
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        searchCache.invalidateAll();
+        countCache.invalidateAll();
+        teamIdCache.invalidate();
+    }
+
+    @Test
+    @DisplayName("같은 조건의 검색은 SQL 없이 캐시에서 가져온다")
+    public void hit() {
+        MemberSearchCondition condition = condition("teamA", null, null);
+        List<MemberTeamDto> first = memberRepository.search(condition);
+
+        List<MemberTeamDto> second = withoutSql(() -> memberRepository.search(condition("teamA", null, null)));
+
+        assertThat(second).isSameAs(first);
+        CacheStats stats = searchCache.stats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getHitRatio()).isEqualTo(0.5);
+        assertThat(stats.getWeight()).isPositive();
+    }
+
+    @Test
+    @DisplayName("회원이 추가되면 그 회원이 조건에 맞는 항목만 무효화한다")
+    public void insertInvalidatesMatchingEntries() {
+        memberRepository.search(condition("teamA", null, null));
+        memberRepository.search(condition("teamB", null, null));
+
+        tx.executeWithoutResult(status -> em.persist(new Member("member5", 50, em.find(Team.class, teamBId))));
+
+        assertThat(withoutSql(() -> memberRepository.search(condition("teamA", null, null)))).hasSize(2);
+        assertThat(memberRepository.search(condition("teamB", null, null)))
+                .extracting("username").containsExactly("member3", "member4", "member5");
+    }
+
+    @Test
+    @DisplayName("변경 전 상태가 조건에 맞던 항목도 무효화한다")
+    public void updateInvalidatesPreviousMatch() {
+        MemberSearchCondition young = condition(null, null, 20);
+        assertThat(memberRepository.search(young)).extracting("username").containsExactly("member1", "member2");
+        memberRepository.search(condition(null, 30, null));
+
+        tx.executeWithoutResult(status -> em.find(Member.class, member1Id).setAge(25));
+
+        assertThat(memberRepository.search(condition(null, null, 20))).extracting("username").containsExactly("member2");
+        // 변경 전(10)과 변경 후(25) 모두 30 이상이 아니다.
+        assertThat(withoutSql(() -> memberRepository.search(condition(null, 30, null)))).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("팀 이름이 바뀌면 그 팀의 회원이 있는 항목을 무효화한다")
+    public void teamRename() {
+        memberRepository.search(condition(null, 30, null));
+        memberRepository.search(condition(null, null, 20));
+
+        tx.executeWithoutResult(status -> em.find(Team.class, teamBId).setName("teamC"));
+
+        assertThat(memberRepository.search(condition(null, 30, null)))
+                .extracting("teamName").containsOnly("teamC");
+        assertThat(withoutSql(() -> memberRepository.search(condition(null, null, 20)))).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("한 트랜잭션의 변경은 커밋된 뒤 한 번에 무효화한다")
+    public void invalidateOncePerTransaction() {
+        memberRepository.search(condition("teamB", null, null));
+        memberRepository.search(condition(null, 30, null));
+        long before = searchCache.stats().getInvalidations();
+
+        tx.executeWithoutResult(status -> {
+            Team teamB = em.find(Team.class, teamBId);
+            for (int i = 5; i <= 7; i++) {
+                em.persist(new Member("member" + i, i * 10, teamB));
+                em.flush();
+            }
+            assertThat(searchCache.stats().getInvalidations()).isEqualTo(before);
+        });
+
+        assertThat(searchCache.stats().getInvalidations()).isEqualTo(before + 1);
+        assertThat(searchCache.stats().getSize()).isZero();
+        assertThat(memberRepository.search(condition("teamB", null, null)))
+                .extracting("username").containsExactly("member3", "member4", "member5", "member6", "member7");
+    }
+
+    @Test
+    @DisplayName("쓰는 트랜잭션은 캐시를 쓰지 않고, 롤백되면 무효화하지 않는다")
+    public void bypassInWriteTransaction() {
+        List<MemberTeamDto> cached = memberRepository.search(condition("teamB", null, null));
+        CacheStats before = searchCache.stats();
+
+        tx.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 50, em.find(Team.class, teamBId)));
+            em.flush();
+
+            assertThat(memberRepository.search(condition("teamB", null, null)))
+                    .extracting("username").containsExactly("member3", "member4", "member5");
+            status.setRollbackOnly();
+        });
+
+        CacheStats after = searchCache.stats();
+        assertThat(after.getHits()).isEqualTo(before.getHits());
+        assertThat(after.getMisses()).isEqualTo(before.getMisses());
+        assertThat(after.getInvalidations()).isEqualTo(before.getInvalidations());
+        assertThat(withoutSql(() -> memberRepository.search(condition("teamB", null, null)))).isSameAs(cached);
+    }
+
+    @Test
+    @DisplayName("벌크 연산은 전체를 무효화한다")
+    public void bulkInvalidatesAll() {
+        memberRepository.search(condition("teamA", null, null));
+        memberRepository.searchPageComplex(condition(null, null, null), PageRequest.of(0, 2));
+
+        bulkOperations.update(member.age.goe(0), update -> update.set(member.age, member.age.add(1)));
+
+        assertThat(searchCache.stats().getSize()).isZero();
+        assertThat(memberRepository.search(condition("teamA", null, null)))
+                .extracting("age").containsExactly(11, 21);
+    }
+
+    @Test
+    @DisplayName("메모리 스냅샷이 커밋을 반영한 뒤에 무효화한다")
+    public void invalidateAfterColumnStore() {
+        List<EntityChangeHandler> order = handlers.orderedStream().collect(Collectors.toList());
+        assertThat(order.indexOf(columnStore)).isLessThan(order.indexOf(searchCache));
+        assertThat(order.indexOf(teamIdCache)).isLessThan(order.indexOf(searchCache));
+
+        columnStore.rebuild();
+        assertThat(withoutSql(() -> memberRepository.search(condition(null, null, 20))))
+                .extracting("username").containsExactly("member1", "member2");
+
+        tx.executeWithoutResult(status -> em.find(Member.class, member1Id).setAge(25));
+
+        assertThat(withoutSql(() -> memberRepository.search(condition(null, null, 20))))
+                .extracting("username").containsExactly("member2");
+        assertThat(withoutSql(() -> memberRepository.search(condition(null, 25, null))))
+                .extracting("username").containsExactly("member1", "member3", "member4");
+    }
+
+    @Test
+    @DisplayName("앞쪽 페이지만 캐시한다")
+    public void onlyFirstPages() {
+        MemberSearchCondition condition = condition(null, null, null);
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+        memberRepository.searchPageComplex(condition, PageRequest.of(3, 1));
+
+        withoutSql(() -> memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)));
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            memberRepository.searchPageComplex(condition, PageRequest.of(3, 1));
+            assertThat(scope.getCount()).isPositive();
+        }
+    }
+
+    private <T> T withoutSql(Supplier<T> call) {
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            T result = call.get();
+            assertThat(scope.getCount()).isZero();
+            return result;
+        }
+    }
+
+    private MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
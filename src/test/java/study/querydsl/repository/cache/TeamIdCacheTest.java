@@ -0,0 +1,234 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 사전은 커밋된 팀만 읽으므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class TeamIdCacheTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired TeamIdCache teamIdCache;
+    @Autowired MemberCountCache countCache;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate tx;
+    Team teamA;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+        });
+        countCache.invalidateAll();
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        // JdbcTemplate 로 지운 팀은 이벤트가 없다.
+        teamIdCache.invalidate();
+        countCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("팀 이름 조건 - 변경 후: count 쿼리는 조인 없이 member.team_id 비교")
+    public void after_countWithoutJoin() {
+        teamIdCache.refresh();
+        MemberSearchCondition condition = condition("teamA");
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+
+            assertThat(result.getTotalElements()).isEqualTo(2);
+            List<String> statements = scope.getStatements();
+            assertThat(statements).hasSize(2);
+            assertThat(statements.get(0)).contains("left outer join team").contains(".team_id=?").doesNotContain(".name=?");
+            assertThat(statements.get(1)).startsWith("select count(").doesNotContain("join").contains(".team_id=?");
+        }
+    }
+
+    @Test
+    @DisplayName("팀 이름 조건 - 엔티티 조회는 조인 없이 검색")
+    public void searchMemberWithoutJoin() {
+        teamIdCache.refresh();
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            List<Member> result = memberJpaRepository.searchMember(condition("teamB"));
+
+            assertThat(result).extracting("username").containsExactly("member3", "member4");
+            assertThat(scope.getStatements()).singleElement().asString().doesNotContain("join");
+        }
+    }
+
+    @Test
+    @DisplayName("Team 저장 시 사전을 다시 읽는다 - 같은 이름의 팀이 여러 개일 수 있다")
+    public void refreshOnTeamWrite() {
+        teamIdCache.refresh();
+        assertThat(teamIdCache.findIds("teamA")).containsExactly(teamA.getId());
+
+        Team otherTeamA = tx.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            em.persist(new Member("member5", 50, team));
+            return team;
+        });
+        // 커밋 후 백그라운드에서 다시 읽는다. 여기서는 기다리지 않고 직접 읽는다.
+        teamIdCache.refresh();
+
+        assertThat(teamIdCache.findIds("teamA")).containsExactlyInAnyOrder(teamA.getId(), otherTeamA.getId());
+        assertThat(memberRepository.search(condition("teamA"))).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2", "member5");
+    }
+
+    @Test
+    @DisplayName("없는 팀 이름이면 결과가 없다")
+    public void unknownTeamName() {
+        MemberSearchCondition condition = condition("teamZ");
+
+        assertThat(memberRepository.search(condition)).isEmpty();
+        assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+
+    @Test
+    @DisplayName("사전에 없는 이름은 한 번 다시 읽는다 - 네이티브 SQL 로 추가된 팀")
+    public void reloadOnMiss() {
+        TeamIdCache cache = newCache(new AtomicLong());
+        cache.refresh();
+        jdbcTemplate.update("insert into team (id, name) values (?, 'teamC')", 9_000_001L);
+
+        assertThat(cache.findIds("teamC")).containsExactly(9_000_001L);
+    }
+
+    @Test
+    @DisplayName("다시 읽어도 없던 이름은 ttl 이 지날 때까지 더 읽지 않는다")
+    public void missingNameNotReloaded() {
+        AtomicLong now = new AtomicLong();
+        TeamIdCache cache = newCache(now);
+        cache.refresh();
+        assertThat(cache.findIds("teamC")).isEmpty();
+        jdbcTemplate.update("insert into team (id, name) values (?, 'teamC')", 9_000_001L);
+
+        assertThat(cache.findIds("teamC")).isEmpty();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertThat(cache.findIds("teamC")).containsExactly(9_000_001L);
+    }
+
+    @Test
+    @DisplayName("사전을 아직 읽지 못했으면 기다리지 않고 team.name 으로 검색한다")
+    public void unknownNameFallsBackToName() {
+        teamIdCache.invalidate();
+        jdbcTemplate.update("insert into team (id, name) values (?, 'teamC')", 9_000_001L);
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) values (?, 'member6', 60, ?)",
+                9_000_001L, 9_000_001L);
+
+        // 사전이 없으면 백그라운드에서 읽기 시작하고 이번 검색은 기다리지 않는다.
+        assertThat(memberRepository.search(condition("teamC"))).extracting("username").containsExactly("member6");
+    }
+
+    @Test
+    @DisplayName("커밋되지 않은 팀은 사전에 넣지 않는다 - 쓰는 트랜잭션 안에서는 team.name 으로 찾는다")
+    public void uncommittedTeam() {
+        teamIdCache.refresh();
+        tx.executeWithoutResult(status -> {
+            Team teamD = new Team("teamD");
+            em.persist(teamD);
+            em.persist(new Member("member7", 70, teamD));
+            em.flush();
+
+            assertThat(memberRepository.search(condition("teamD"))).extracting("username").containsExactly("member7");
+            assertThat(teamIdCache.findIds("teamD")).isEmpty();
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamIdCache.findIds("teamD")).isEmpty();
+        assertThat(memberRepository.search(condition("teamD"))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("쓰는 트랜잭션 안에서 바꾼 팀 이름으로 검색한다 - 사전을 쓰지 않는다")
+    public void renameInTransaction() {
+        teamIdCache.refresh();
+        tx.executeWithoutResult(status -> {
+            em.find(Team.class, teamA.getId()).setName("teamB");
+            em.flush();
+
+            assertThat(memberRepository.search(condition("teamA"))).isEmpty();
+            assertThat(memberRepository.search(condition("teamB"))).extracting("username")
+                    .containsExactlyInAnyOrder("member1", "member2", "member3", "member4");
+            status.setRollbackOnly();
+        });
+
+        teamIdCache.refresh();
+        assertThat(memberRepository.search(condition("teamA"))).extracting("username")
+                .containsExactlyInAnyOrder("member1", "member2");
+    }
+
+    @Test
+    @DisplayName("ttl 이 지나면 다시 읽는다 - 네이티브 SQL 로 바뀐 팀 이름")
+    public void reloadAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        TeamIdCache cache = newCache(now);
+        cache.refresh();
+        assertThat(cache.findIds("teamA")).containsExactly(teamA.getId());
+
+        jdbcTemplate.update("update team set name = 'teamZ' where id = ?", teamA.getId());
+        assertThat(cache.findIds("teamA")).containsExactly(teamA.getId());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertThat(cache.findIds("teamA")).isEmpty();
+        assertThat(cache.findIds("teamZ")).containsExactly(teamA.getId());
+    }
+
+    /**
+     * 다시 읽기를 호출한 스레드에서 바로 실행하는 사전
+     */
+    private TeamIdCache newCache(AtomicLong now) {
+        return new TeamIdCache(em, transactionManager, Duration.ofSeconds(60), 1000, now::get, Runnable::run);
+    }
+
+    private MemberSearchCondition condition(String teamName) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        return condition;
+    }
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TtlCacheTest {
+
+    AtomicLong now = new AtomicLong();
+    TtlCache<String, Long> cache = new TtlCache<>(2, Duration.ofSeconds(10), now::get);
+
+    @Test
+    @DisplayName("캐시 적중과 TTL 만료")
+    public void hitAndExpire() {
+        assertThat(cache.get("a", () -> 1L)).isEqualTo(1L);
+        assertThat(cache.get("a", () -> 2L)).isEqualTo(1L);
+
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertThat(cache.get("a", () -> 3L)).isEqualTo(3L);
+
+        CacheStats stats = cache.stats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(2);
+        assertThat(stats.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("최대 크기를 넘으면 가장 오래 사용하지 않은 항목부터 제거")
+    public void evictLeastRecentlyUsed() {
+        cache.get("a", () -> 1L);
+        cache.get("b", () -> 2L);
+        cache.get("a", () -> 1L);
+        cache.get("c", () -> 3L);
+
+        assertThat(cache.get("a", () -> -1L)).isEqualTo(1L);
+        assertThat(cache.get("b", () -> -1L)).isEqualTo(-1L);
+        assertThat(cache.stats().getEvictions()).isEqualTo(2);
+        assertThat(cache.stats().getSize()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("계산 도중 무효화되면 계산된 값을 캐시하지 않는다")
+    public void invalidateWhileLoading() {
+        Long loaded = cache.get("a", () -> {
+            cache.invalidateAll();
+            return 1L;
+        });
+
+        assertThat(loaded).isEqualTo(1L);
+        assertThat(cache.get("a", () -> 2L)).isEqualTo(2L);
+        assertThat(cache.stats().getInvalidations()).isEqualTo(1);
+    }
+}
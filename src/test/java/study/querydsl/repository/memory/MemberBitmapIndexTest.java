@@ -0,0 +1,172 @@
+package study.querydsl.repository.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.cache.TeamIdCache;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋된 변경만 비트맵에 반영되므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class MemberBitmapIndexTest {
+
+    private static final long ID_OFFSET = 6_000_000L;
+
+    @Autowired MemberBitmapIndex bitmapIndex;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamIdCache teamIdCache;
+    @Autowired MemberCountCache countCache;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate tx;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        // 팀 이름이 같은 팀이 둘 있다(teamA).
+        jdbcTemplate.update("insert into team (id, name) values (?, 'teamA'), (?, 'teamB'), (?, 'teamA')",
+                ID_OFFSET + 1, ID_OFFSET + 2, ID_OFFSET + 3);
+        // 4 명 중 1 명은 팀이 없다.
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), " +
+                "case when mod(x, 4) = 0 then null else mod(x, 4) + " + ID_OFFSET + " end " +
+                "from system_range(1, 1000)");
+        countCache.invalidateAll();
+        teamIdCache.refresh();
+        bitmapIndex.rebuild();
+    }
+
+    @AfterEach
+    public void after() {
+        bitmapIndex.discard();
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        // JdbcTemplate 로 지운 팀은 이벤트가 없다.
+        teamIdCache.invalidate();
+    }
+
+    @Test
+    @DisplayName("팀 이름, 나이 조건 조합의 비트맵 count 는 SQL count 와 같다")
+    public void sameAsSql() {
+        for (MemberSearchCondition condition : conditions()) {
+            assertSameAsSql(condition);
+        }
+    }
+
+    @Test
+    @DisplayName("username 조건이 있으면 비트맵으로 세지 않는다")
+    public void usernameGoesToDatabase() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member1");
+
+        assertThat(bitmapIndex.count(condition)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("읽기 전용 페이징 조회의 total 은 count SQL 없이 비트맵으로 계산한다")
+    public void pageTotalWithoutCountQuery() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(30);
+
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            Page<MemberTeamDto> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+
+            assertThat(page.getTotalElements()).isEqualTo(sqlCount(condition));
+            assertThat(scope.getStatements()).noneMatch(sql -> sql.startsWith("select count("));
+        }
+    }
+
+    @Test
+    @DisplayName("커밋된 insert/update/delete 를 따라간다")
+    public void followCommittedChanges() {
+        tx.executeWithoutResult(status -> {
+            Team teamB = em.getReference(Team.class, ID_OFFSET + 2);
+            em.persist(new Member("new1", 35, teamB));
+            em.persist(new Member("new2", 36));
+            Member moved = em.find(Member.class, ID_OFFSET + 1);
+            moved.setAge(77);
+            moved.setTeam(teamB);
+            em.remove(em.find(Member.class, ID_OFFSET + 2));
+        });
+        tx.executeWithoutResult(status -> {
+            em.find(Member.class, ID_OFFSET + 3).setAge(1);
+            status.setRollbackOnly();
+        });
+
+        for (MemberSearchCondition condition : conditions()) {
+            assertSameAsSql(condition);
+        }
+    }
+
+    private void assertSameAsSql(MemberSearchCondition condition) {
+        if ("teamZ".equals(condition.getTeamName())) {
+            // 사전에 없는 팀 이름은 DB 에서 센다.
+            assertThat(bitmapIndex.count(condition)).as(condition.toString()).isEmpty();
+        } else {
+            assertThat(bitmapIndex.count(condition)).as(condition.toString()).contains(sqlCount(condition));
+        }
+    }
+
+    private List<MemberSearchCondition> conditions() {
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        String[] teamNames = {null, "teamA", "teamB", "teamZ"};
+        Integer[] ageGoes = {null, 0, 35, 99};
+        Integer[] ageLoes = {null, 10, 77, 30};
+        for (String teamName : teamNames) {
+            for (Integer ageGoe : ageGoes) {
+                for (Integer ageLoe : ageLoes) {
+                    MemberSearchCondition condition = new MemberSearchCondition();
+                    condition.setTeamName(teamName);
+                    condition.setAgeGoe(ageGoe);
+                    condition.setAgeLoe(ageLoe);
+                    conditions.add(condition);
+                }
+            }
+        }
+        return conditions;
+    }
+
+    private long sqlCount(MemberSearchCondition condition) {
+        StringBuilder sql = new StringBuilder("select count(*) from member m left join team t on m.team_id = t.id where 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (condition.getTeamName() != null) {
+            sql.append(" and t.name = ?");
+            args.add(condition.getTeamName());
+        }
+        if (condition.getAgeGoe() != null) {
+            sql.append(" and m.age >= ?");
+            args.add(condition.getAgeGoe());
+        }
+        if (condition.getAgeLoe() != null) {
+            sql.append(" and m.age <= ?");
+            args.add(condition.getAgeLoe());
+        }
+        return jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+    }
+}
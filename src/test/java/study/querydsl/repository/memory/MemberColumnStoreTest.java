@@ -0,0 +1,167 @@
+package study.querydsl.repository.memory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.event.EntityChange;
+import study.querydsl.repository.event.EntityChangeEventListener;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 커밋된 변경만 스냅샷에 반영되므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class MemberColumnStoreTest {
+
+    @Autowired MemberColumnStore store;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired EntityChangeEventListener entityChangeEventListener;
+    @Autowired EntityManager em;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    TransactionTemplate tx;
+    Long teamAId;
+
+    @BeforeEach
+    public void before() {
+        tx = new TransactionTemplate(transactionManager);
+        teamAId = tx.execute(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            em.persist(new Member("member5", 50));
+            return teamA.getId();
+        });
+        store.rebuild();
+    }
+
+    @AfterEach
+    public void after() {
+        // 같은 컨텍스트를 쓰는 다른 테스트가 스냅샷을 읽지 않게 한다.
+        store.discard();
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+    }
+
+    @Test
+    @DisplayName("스냅샷 검색 결과는 JPA 검색 결과와 같다")
+    public void sameAsJpa() {
+        assertThat(store.isWarm()).isTrue();
+
+        assertSameAsJpa(condition(null, null, null, null));
+        assertSameAsJpa(condition("member1", null, null, null));
+        assertSameAsJpa(condition(null, "teamB", null, null));
+        assertSameAsJpa(condition(null, "teamA", 15, 40));
+        assertSameAsJpa(condition(null, null, 25, null));
+        assertSameAsJpa(condition("", " ", null, 30));
+        assertSameAsJpa(condition(null, "teamZ", null, null));
+    }
+
+    @Test
+    @DisplayName("읽기 전용으로 호출하면 MemberRepository.search 는 스냅샷으로 답한다")
+    public void repositoryUsesSnapshot() {
+        // 스냅샷에만 있는 회원 - DB 를 읽었다면 나올 수 없다.
+        jdbcTemplate.update("delete from member where username = 'member5'");
+
+        List<MemberTeamDto> result = memberRepository.search(condition("member5", null, null, null));
+
+        assertThat(result).extracting("username").containsExactly("member5");
+        assertThat(tx.execute(status -> memberRepository.search(condition("member5", null, null, null)))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("커밋된 insert/update/delete 는 스냅샷에 반영되고 롤백된 변경은 무시된다")
+    public void followCommittedChanges() {
+        Long newId = tx.execute(status -> {
+            Member member6 = new Member("member6", 60, em.getReference(Team.class, teamAId));
+            em.persist(member6);
+            Member member1 = memberJpaRepository.findByUsername("member1").get(0);
+            member1.setAge(11);
+            em.remove(memberJpaRepository.findByUsername("member3").get(0));
+            return member6.getId();
+        });
+        tx.executeWithoutResult(status -> {
+            memberJpaRepository.findByUsername("member2").get(0).setAge(99);
+            em.flush();
+            status.setRollbackOnly();
+        });
+        Long newTeamId = tx.execute(status -> {
+            Team teamC = new Team("teamC");
+            em.persist(teamC);
+            em.persist(new Member("member7", 70, teamC));
+            return teamC.getId();
+        });
+
+        assertThat(store.search(condition(null, "teamA", null, null)).orElseThrow())
+                .extracting("username", "age", "memberId")
+                .containsExactly(
+                        tuple("member1", 11, memberId("member1")),
+                        tuple("member2", 20, memberId("member2")),
+                        tuple("member6", 60, newId));
+        assertThat(store.search(condition("member3", null, null, null)).orElseThrow()).isEmpty();
+        assertThat(store.search(condition(null, "teamC", null, null)).orElseThrow())
+                .extracting("username", "teamId")
+                .containsExactly(tuple("member7", newTeamId));
+        assertSameAsJpa(condition(null, null, null, null));
+    }
+
+    @Test
+    @DisplayName("벌크 변경이면 스냅샷을 버리고 다시 읽는다")
+    public void discardOnBulkChange() throws InterruptedException {
+        // 이벤트 없이 바뀐 값 - 다시 읽어야 보인다.
+        jdbcTemplate.update("update member set age = 1");
+
+        entityChangeEventListener.publish(new EntityChange(EntityChange.Type.BULK, Member.class, null, null));
+
+        MemberSearchCondition ageOne = condition(null, null, null, 1);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (store.search(ageOne).map(List::size).orElse(0) != 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(store.search(ageOne).orElseThrow()).hasSize(5);
+    }
+
+    private void assertSameAsJpa(MemberSearchCondition condition) {
+        List<MemberTeamDto> jpa = tx.execute(status -> memberJpaRepository.search(condition));
+        assertThat(store.search(condition).orElseThrow())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(jpa);
+    }
+
+    private Long memberId(String username) {
+        return jdbcTemplate.queryForObject("select member_id from member where username = ?", Long.class, username);
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
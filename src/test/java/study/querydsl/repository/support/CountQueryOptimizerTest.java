@@ -0,0 +1,175 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import static com.querydsl.jpa.JPAExpressions.select;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class CountQueryOptimizerTest {
+
+    @Autowired EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+    }
+
+    @Test
+    @DisplayName("사용하지 않는 to-one left join 과 order by 는 제거")
+    public void pruneUnusedLeftJoin() {
+        JPAQuery<?> content = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.goe(20))
+                .orderBy(team.name.desc())
+                .offset(1)
+                .limit(2);
+
+        JPAQuery<Long> count = CountQueryOptimizer.countQuery(queryFactory, content);
+
+        assertThat(count.toString()).doesNotContain("join").doesNotContain("order by");
+        assertThat(count.fetchOne()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("where 절에서 사용하는 조인은 유지")
+    public void keepReferencedJoin() {
+        JPAQuery<?> content = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(team.name.eq("teamA"));
+
+        JPAQuery<Long> count = CountQueryOptimizer.countQuery(queryFactory, content);
+
+        assertThat(count.toString()).contains("left join member1.team as team");
+        assertThat(count.fetchOne()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("inner join 과 컬렉션 조인은 행 수를 바꿀 수 있으므로 유지")
+    public void keepRowChangingJoins() {
+        JPAQuery<?> innerJoin = queryFactory
+                .selectFrom(member)
+                .join(member.team, team);
+        QMember teamMember = new QMember("teamMember");
+        JPAQuery<?> collectionJoin = queryFactory
+                .selectFrom(team)
+                .leftJoin(team.members, teamMember);
+
+        JPAQuery<Long> innerCount = CountQueryOptimizer.countQuery(queryFactory, innerJoin);
+        JPAQuery<Long> collectionCount = CountQueryOptimizer.countQuery(queryFactory, collectionJoin);
+
+        assertThat(innerCount.toString()).contains("inner join");
+        assertThat(innerCount.fetchOne()).isEqualTo(4);
+        assertThat(collectionCount.toString()).contains("left join team.members");
+        assertThat(collectionCount.fetchOne()).isEqualTo(collectionJoin.fetch().size());
+    }
+
+    @Test
+    @DisplayName("연관관계가 아닌 엔티티 left join(theta join)은 행 수를 바꿀 수 있으므로 유지")
+    public void keepThetaJoin() {
+        // member1 과 이름이 같은 팀이 둘 있으면 member1 행이 둘로 늘어난다.
+        em.persist(new Team("member1"));
+        em.persist(new Team("member1"));
+        JPAQuery<?> content = queryFactory
+                .selectFrom(member)
+                .leftJoin(team).on(member.username.eq(team.name));
+
+        JPAQuery<Long> count = CountQueryOptimizer.countQuery(queryFactory, content);
+
+        assertThat(count.toString()).containsIgnoringCase("left join team");
+        assertThat(count.fetchOne()).isEqualTo(6).isEqualTo(content.fetch().size());
+    }
+
+    @Test
+    @DisplayName("fetch join 은 일반 조인으로, 서브쿼리가 참조하는 조인은 유지")
+    public void fetchJoinAndSubQuery() {
+        JPAQuery<?> fetchJoin = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(team.name.isNotNull());
+        QMember sub = new QMember("sub");
+        JPAQuery<?> correlated = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(member.age.eq(select(sub.age.max()).from(sub).where(sub.team.eq(team))));
+
+        JPAQuery<Long> fetchCount = CountQueryOptimizer.countQuery(queryFactory, fetchJoin);
+        JPAQuery<Long> correlatedCount = CountQueryOptimizer.countQuery(queryFactory, correlated);
+
+        assertThat(fetchCount.toString()).doesNotContain("fetch");
+        assertThat(fetchCount.fetchOne()).isEqualTo(4);
+        assertThat(correlatedCount.toString()).contains("left join member1.team as team");
+        assertThat(correlatedCount.fetchOne()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("distinct 쿼리는 select 절의 식을 distinct 로 센다")
+    public void distinctProjection() {
+        JPAQuery<?> rootDistinct = queryFactory
+                .selectFrom(member).distinct()
+                .leftJoin(member.team, team);
+        JPAQuery<?> teamNames = queryFactory
+                .select(team.name).distinct()
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.age.goe(20));
+
+        JPAQuery<Long> rootCount = CountQueryOptimizer.countQuery(queryFactory, rootDistinct);
+        JPAQuery<Long> teamNameCount = CountQueryOptimizer.countQuery(queryFactory, teamNames);
+
+        assertThat(rootCount.toString()).contains("count(distinct member1)").doesNotContain("join");
+        assertThat(rootCount.fetchOne()).isEqualTo(5);
+        // team.name 을 세므로 조인을 유지한다. 팀이 없는 member5 의 null 은 세지 않는다.
+        assertThat(teamNameCount.toString()).contains("count(distinct team.name)").contains("left join member1.team as team");
+        assertThat(teamNameCount.fetchOne()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("여러 식을 select 하는 distinct 쿼리와 having 은 지원하지 않는다")
+    public void unsupported() {
+        JPAQuery<?> distinctDto = queryFactory
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name)).distinct()
+                .from(member)
+                .leftJoin(member.team, team);
+        JPAQuery<?> having = queryFactory
+                .selectFrom(member)
+                .having(member.age.max().gt(10));
+
+        assertThatThrownBy(() -> CountQueryOptimizer.countQuery(queryFactory, distinctDto))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CountQueryOptimizer.countQuery(queryFactory, having))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,184 @@
+package study.querydsl.repository.support.advisor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.MemberCountCache;
+import study.querydsl.repository.cache.TeamIdCache;
+import study.querydsl.repository.support.statement.StatementRecorder;
+import study.querydsl.repository.support.statement.StatementScope;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인덱스 판정을 H2 EXPLAIN 결과와 비교한다.
+ * DDL 은 H2 에서 바로 커밋되므로 트랜잭션 없이 실행하고 테스트가 끝나면 직접 지운다.
+ */
+@SpringBootTest
+class IndexAdvisorTest {
+
+    private static final long ID_OFFSET = 5_000_000L;
+
+    @Autowired DataSource dataSource;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamIdCache teamIdCache;
+    @Autowired MemberCountCache countCache;
+
+    IndexAdvisor advisor;
+
+    @BeforeEach
+    public void before() {
+        jdbcTemplate.update("insert into team (id, name) values (?, ?), (?, ?)",
+                ID_OFFSET + 1, "teamA", ID_OFFSET + 2, "teamB");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x + " + ID_OFFSET + ", concat('member', x), mod(x, 100), mod(x, 2) + 1 + " + ID_OFFSET + " " +
+                "from system_range(1, 2000)");
+        jdbcTemplate.execute("create table advisor_probe (id bigint primary key, a int, b int)");
+        jdbcTemplate.execute("create index idx_advisor_probe_a on advisor_probe (a)");
+        jdbcTemplate.update("insert into advisor_probe select x, mod(x, 100), mod(x, 7) from system_range(1, 2000)");
+        countCache.invalidateAll();
+        advisor = new IndexAdvisor(dataSource);
+    }
+
+    @AfterEach
+    public void after() {
+        jdbcTemplate.execute("drop table advisor_probe");
+        jdbcTemplate.update("delete from member where member_id > ?", ID_OFFSET);
+        jdbcTemplate.update("delete from team where id > ?", ID_OFFSET);
+        // JdbcTemplate 로 지운 팀은 이벤트가 없다.
+        teamIdCache.invalidate();
+    }
+
+    @Test
+    @DisplayName("리포지토리 검색 조건 조합 판정 - EXPLAIN 에서도 인덱스를 쓴다")
+    public void repositoryShapes() {
+        teamIdCache.refresh();
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            memberRepository.searchPageComplex(condition(null, "teamA", 20, null), PageRequest.of(0, 10));
+            memberRepository.search(condition("member1", null, null, null));
+            memberRepository.search(condition(null, null, 20, 30));
+            memberRepository.search(condition("member1", null, 20, null));
+            scope.getStatements().forEach(advisor::record);
+        }
+
+        Map<String, IndexAdvice.Status> statuses = statusesByShape();
+
+        assertThat(statuses).containsEntry("member where eq[team_id] range[age] order by []", IndexAdvice.Status.SERVED);
+        assertThat(explain("select member_id from member where team_id = " + (ID_OFFSET + 1) + " and age >= 20"))
+                .containsIgnoringCase("idx_member_team_age");
+
+        assertThat(statuses).containsEntry("member where eq[username] range[] order by []", IndexAdvice.Status.SERVED);
+        assertThat(explain("select member_id from member where username = 'member1'"))
+                .containsIgnoringCase("idx_member_username");
+
+        assertThat(statuses).containsEntry("member where eq[] range[age] order by []", IndexAdvice.Status.SERVED);
+        assertThat(explain("select member_id from member where age >= 20 and age <= 30"))
+                .containsIgnoringCase("idx_member_age");
+
+        // username 인덱스로 찾은 뒤 age 는 걸러낸다.
+        assertThat(statuses).containsEntry("member where eq[username] range[age] order by []", IndexAdvice.Status.PARTIAL);
+    }
+
+    @Test
+    @DisplayName("인덱스가 없는 컬럼 조건은 UNSERVED - EXPLAIN 은 tableScan")
+    public void unservedShape() {
+        advisor.record("select p.id as id1_ from advisor_probe p where p.b=? and p.id>?");
+        advisor.record("select p.id as id1_ from advisor_probe p where p.a=?");
+        advisor.record("select p.id as id1_ from advisor_probe p where p.a=3");
+
+        List<IndexAdvice> report = advisor.report();
+
+        assertThat(report).first().satisfies(advice -> {
+            assertThat(advice.getStatus()).isEqualTo(IndexAdvice.Status.PARTIAL);
+            assertThat(advice.getShape().getEquality()).containsExactly("b");
+        });
+        assertThat(report).last().satisfies(advice -> {
+            assertThat(advice.getStatus()).isEqualTo(IndexAdvice.Status.SERVED);
+            assertThat(advice.getCount()).isEqualTo(2);
+        });
+        assertThat(explain("select id from advisor_probe where a = 3")).containsIgnoringCase("idx_advisor_probe_a");
+
+        advisor.reset();
+        advisor.record("select p.id as id1_ from advisor_probe p where p.b=?");
+
+        assertThat(advisor.report()).singleElement()
+                .extracting(IndexAdvice::getStatus).isEqualTo(IndexAdvice.Status.UNSERVED);
+        assertThat(explain("select id from advisor_probe where b = 3")).containsIgnoringCase("tableScan");
+    }
+
+    @Test
+    @DisplayName("정렬은 등호 조건 다음 인덱스 컬럼과 같아야 SERVED - 조건도 정렬도 없으면 UNSERVED")
+    public void orderByShapes() {
+        List<List<String>> memberIndexes = Arrays.asList(
+                Arrays.asList("member_id"),
+                Arrays.asList("team_id", "age"),
+                Arrays.asList("username"),
+                Arrays.asList("age"));
+
+        assertThat(shape(eq("team_id"), range(), "username").evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.PARTIAL);
+        assertThat(shape(eq("team_id"), range(), "age").evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.SERVED);
+        assertThat(shape(eq("team_id"), range("age"), "age").evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.SERVED);
+        // 등호 조건 컬럼으로 정렬하는 것은 정렬이 필요 없다.
+        assertThat(shape(eq("team_id"), range(), "team_id", "age").evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.SERVED);
+        assertThat(shape(eq(), range("age"), "username").evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.PARTIAL);
+        assertThat(shape(eq(), range(), "username").evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.SERVED);
+        assertThat(shape(eq(), range()).evaluate(memberIndexes))
+                .isEqualTo(IndexAdvice.Status.UNSERVED);
+
+        advisor.record("select p.id as id1_ from advisor_probe p where p.a=? order by p.b");
+        assertThat(advisor.report()).singleElement()
+                .extracting(IndexAdvice::getStatus).isEqualTo(IndexAdvice.Status.PARTIAL);
+    }
+
+    private static PredicateShape shape(SortedSet<String> equality, SortedSet<String> range, String... orderBy) {
+        return new PredicateShape("member", equality, range, Arrays.asList(orderBy));
+    }
+
+    private static SortedSet<String> eq(String... columns) {
+        return new TreeSet<>(Arrays.asList(columns));
+    }
+
+    private static SortedSet<String> range(String... columns) {
+        return new TreeSet<>(Arrays.asList(columns));
+    }
+
+    private Map<String, IndexAdvice.Status> statusesByShape() {
+        return advisor.report().stream()
+                .collect(Collectors.toMap(advice -> advice.getShape().toString(), IndexAdvice::getStatus));
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+
+    private static MemberSearchCondition condition(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername(username);
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
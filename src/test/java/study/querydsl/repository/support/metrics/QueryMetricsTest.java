@@ -0,0 +1,92 @@
+package study.querydsl.repository.support.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.MemberCountCache;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class QueryMetricsTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MemberCountCache countCache;
+    @Autowired QueryMetrics queryMetrics;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        em.clear();
+        countCache.invalidateAll();
+        queryMetrics.reset();
+    }
+
+    @Test
+    @DisplayName("메서드와 검색 조건 필드별로 지연 시간, 행 수, SQL 수를 기록한다")
+    public void recordByMethodAndCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+        memberRepository.searchPageComplex(condition, PageRequest.of(0, 2));
+        memberRepository.searchPageComplex(condition, PageRequest.of(1, 2));
+        memberJpaRepository.search(new MemberSearchCondition());
+
+        Map<String, QueryMetricsSnapshot> snapshots = snapshotsByKey();
+
+        QueryMetricsSnapshot page = snapshots.get("MemberRepositoryImpl.searchPageComplex|ageGoe");
+        assertThat(page.getCount()).isEqualTo(2);
+        assertThat(page.getMax()).isGreaterThanOrEqualTo(page.getP50());
+        assertThat(page.getRowsMax()).isEqualTo(2);
+        assertThat(page.getStatementsMax()).isEqualTo(2);
+
+        QueryMetricsSnapshot content = snapshots.get("MemberRepositoryImpl.searchPageComplex#content|ageGoe");
+        assertThat(content.getCount()).isEqualTo(2);
+        assertThat(content.getStatementsMax()).isEqualTo(1);
+        // 두 번째 페이지는 마지막 페이지라 count 를 생략하고, 첫 번째 count 만 실행된다.
+        assertThat(snapshots.get("MemberRepositoryImpl.searchPageComplex#count|ageGoe").getCount()).isEqualTo(1);
+
+        QueryMetricsSnapshot search = snapshots.get("MemberJpaRepository.search|" + QueryMetrics.EMPTY_CONDITION);
+        assertThat(search.getRowsMax()).isEqualTo(4);
+        assertThat(search.getStatementsMax()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("검색 조건 인자가 없는 메서드는 '-' 태그로 기록한다")
+    public void noConditionTag() {
+        memberJpaRepository.findAll();
+
+        assertThat(snapshotsByKey()).containsKey("MemberJpaRepository.findAll|" + QueryMetrics.NO_CONDITION);
+    }
+
+    private Map<String, QueryMetricsSnapshot> snapshotsByKey() {
+        List<QueryMetricsSnapshot> snapshots = queryMetrics.snapshot();
+        return snapshots.stream().collect(Collectors.toMap(s -> s.getMethod() + "|" + s.getTags(), Function.identity()));
+    }
+}
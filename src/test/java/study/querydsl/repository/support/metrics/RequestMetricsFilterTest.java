@@ -0,0 +1,31 @@
+package study.querydsl.repository.support.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestMetricsFilterTest {
+
+    QueryMetrics queryMetrics = new QueryMetrics();
+    RequestMetricsFilter filter = new RequestMetricsFilter(queryMetrics);
+
+    @Test
+    @DisplayName("핸들러 패턴으로 기록하고, 매핑되지 않은 요청은 URI 와 관계없이 한 항목으로 모은다")
+    public void unmatchedRequests() throws Exception {
+        MockHttpServletRequest matched = new MockHttpServletRequest("GET", "/v3/members");
+        matched.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/v3/members");
+        filter.doFilter(matched, new MockHttpServletResponse(), new MockFilterChain());
+        for (int i = 0; i < 10; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/v1/members" + i),
+                    new MockHttpServletResponse(), new MockFilterChain());
+        }
+
+        assertThat(queryMetrics.snapshot()).extracting(QueryMetricsSnapshot::getMethod)
+                .containsExactlyInAnyOrder("GET /v3/members", RequestMetricsFilter.UNMATCHED);
+    }
+}
@@ -0,0 +1,61 @@
+package study.querydsl.repository.support.slowquery;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "member.slow-query.threshold=0ms",
+        "member.slow-query.samples-per-fingerprint=2"
+})
+@Transactional
+class SlowQueryLogTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired SlowQueryLog slowQueryLog;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.flush();
+        em.clear();
+        slowQueryLog.reset();
+    }
+
+    @Test
+    @DisplayName("바인딩 값만 다른 SQL 은 하나의 fingerprint 로 집계하고 느린 SQL 은 값과 함께 남긴다")
+    public void aggregateByFingerprint() {
+        memberJpaRepository.findByUsername("member1");
+        memberJpaRepository.findByUsername("member2");
+        memberJpaRepository.findByUsername("member3");
+
+        List<SlowQuerySnapshot> top = slowQueryLog.top(10);
+
+        assertThat(top).hasSize(1);
+        SlowQuerySnapshot snapshot = top.get(0);
+        assertThat(snapshot.getFingerprint()).contains("where member0_.username=?");
+        assertThat(snapshot.getCount()).isEqualTo(3);
+        assertThat(snapshot.getSlowCount()).isEqualTo(3);
+        assertThat(snapshot.getTotalMillis()).isGreaterThanOrEqualTo(snapshot.getMaxMillis());
+        // 최근 샘플 2개만 남는다.
+        assertThat(snapshot.getSamples()).hasSize(2);
+        assertThat(snapshot.getSamples().get(0)).contains("'member3'");
+        assertThat(snapshot.getSamples().get(1)).contains("'member2'");
+    }
+}
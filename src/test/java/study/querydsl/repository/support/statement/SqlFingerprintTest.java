@@ -0,0 +1,29 @@
+package study.querydsl.repository.support.statement;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlFingerprintTest {
+
+    @Test
+    @DisplayName("리터럴과 주석을 지우고 공백을 정리한다")
+    public void stripLiterals() {
+        String sql = "/* select m from Member m */ select member0_.member_id as member_i1_1_\n" +
+                "  from member member0_ where member0_.age>=20 and member0_.username='member''1' limit 10";
+
+        assertThat(SqlFingerprint.of(sql)).isEqualTo(
+                "select member0_.member_id as member_i1_1_ from member member0_ " +
+                        "where member0_.age>=? and member0_.username=? limit ?");
+    }
+
+    @Test
+    @DisplayName("길이가 다른 IN 목록은 같은 fingerprint 가 된다")
+    public void collapseInList() {
+        String one = SqlFingerprint.of("select * from member where team_id in (?)");
+        String three = SqlFingerprint.of("select * from member where team_id in (1, 2, 3)");
+
+        assertThat(one).isEqualTo(three).isEqualTo("select * from member where team_id in (?+)");
+    }
+}
@@ -0,0 +1,120 @@
+package study.querydsl.repository.support.statement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.cache.MemberCountCache;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class StatementBudgetTest {
+
+    @Autowired EntityManager em;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberCountCache countCache;
+    @Autowired RecordingListener recordingListener;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        em.clear();
+        countCache.invalidateAll();
+        recordingListener.counts.clear();
+    }
+
+    @Test
+    @DisplayName("지연 로딩으로 팀 이름을 읽으면 N+1 이 생겨 예산을 넘는다")
+    public void lazyTeamExceedsBudget() {
+        assertThatThrownBy(() -> StatementBudget.atMost(2, () -> {
+            List<Member> members = memberJpaRepository.searchMember(new MemberSearchCondition());
+            members.forEach(m -> m.getTeam().getName());
+        }))
+                .isInstanceOf(StatementBudgetExceededException.class)
+                .satisfies(e -> assertThat(((StatementBudgetExceededException) e).getActual()).isEqualTo(3));
+    }
+
+    @Test
+    @DisplayName("반복되는 같은 모양의 select 를 찾는다")
+    public void repeatedSelects() {
+        try (StatementScope scope = StatementRecorder.open("test")) {
+            List<Member> members = memberJpaRepository.searchMember(new MemberSearchCondition());
+            members.forEach(m -> m.getTeam().getName());
+
+            Map<String, Integer> repeated = scope.repeatedSelects(2);
+            assertThat(repeated).hasSize(1);
+            assertThat(repeated.keySet().iterator().next()).contains("from team");
+            assertThat(repeated.values()).containsExactly(2);
+        }
+    }
+
+    @Test
+    @DisplayName("페이징 조회는 content, count 두 번의 SQL 로 끝난다")
+    public void pageWithinBudget() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        long total = StatementBudget.atMost(2, () ->
+                memberRepository.searchPageComplex(condition, PageRequest.of(0, 2)).getTotalElements());
+
+        assertThat(total).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("리포지토리 호출마다 실행된 SQL 수를 리스너에 넘긴다")
+    public void recordPerRepositoryCall() {
+        memberJpaRepository.searchMember(new MemberSearchCondition());
+        memberRepository.searchPageComplex(new MemberSearchCondition(), PageRequest.of(0, 2));
+
+        assertThat(recordingListener.counts)
+                .containsEntry("MemberJpaRepository.searchMember", 1)
+                .containsEntry("MemberRepositoryImpl.searchPageComplex", 2);
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener implements RepositoryCallListener {
+
+        final Map<String, Integer> counts = new HashMap<>();
+
+        @Override
+        public void afterCall(RepositoryCall call) {
+            counts.put(call.getMethod(), call.getScope().getCount());
+        }
+    }
+}